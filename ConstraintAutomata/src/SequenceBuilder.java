@@ -8,7 +8,12 @@ import config.ConfigurationData;
 import dk.brics.automaton.Automaton;
 import enums.Mode;
 import enums.ReparationMode;
+import enums.SCAEngine;
+import util.CancellationToken;
+import util.CollectingListener;
 import util.FSMAutomatonBuilder;
+import util.TupleSource;
+import util.TupleStore;
 import util.Utils;
 
 public class SequenceBuilder {
@@ -34,31 +39,72 @@ public class SequenceBuilder {
 			HashSet<String> sequences = new HashSet<>();
 			BiMap<String, Character> msgsMapping = HashBiMap.create();
 			ArrayList<Automaton> automatonListForTRecognition = new ArrayList<>();
+			TupleStore tuples = null;
+			TupleSource source = null;
 			Automaton fullSystemAutomaton = new Automaton();
 			long start = System.currentTimeMillis();
 
 			try {
 				fullSystemAutomaton = FSMAutomatonBuilder.buildFSMAutomatonFromSMC(msgsMapping, fsmFilePath, systemName,
 						messageFile);
-				// List of the Automatons for the recognition of each T-Combination
-				automatonListForTRecognition = Utils.getAutomatonListForTRecognition(msgsMapping, strength,
-						ConfigurationData.ALLOW_REPS_IN_TUPLES);
+				// List of the T-Combinations to be covered: the automatons for their
+				// recognition are needed only when intersections are computed
+				boolean intersections = generationMode == Mode.STANDARD_CIT
+						? ConfigurationData.SCA_ENGINE == SCAEngine.AUTOMATA
+						: !ConfigurationData.ON_THE_FLY_COLLECTING;
+				// Beyond the triads the T-combinations are too many to be stored, so they are
+				// produced on demand
+				boolean streaming = generationMode == Mode.ONLY_CONSTRAINT && !intersections
+						&& (strength > 3 || ConfigurationData.STREAMING_COLLECTING);
+				if (streaming)
+					source = Utils.getTupleSourceForTRecognition(msgsMapping, strength,
+							ConfigurationData.ALLOW_REPS_IN_TUPLES, ConfigurationData.STREAMING_SEED);
+				else if (!intersections)
+					tuples = Utils.getTupleStoreForTRecognition(msgsMapping, strength,
+							ConfigurationData.ALLOW_REPS_IN_TUPLES);
+				else
+					automatonListForTRecognition = Utils.getAutomatonListForTRecognition(msgsMapping, strength,
+							ConfigurationData.ALLOW_REPS_IN_TUPLES);
 
 				if (loadSCA) {
 					sequences = Utils.mapSCAIntoString(msgsMapping, scaFile);
 				} else {
 					if (generationMode == Mode.ONLY_CONSTRAINT) {
 						// Collecting and Conversion into the message format
-						sequences = new HashSet<String>(
-								Utils.collecting(fullSystemAutomaton, automatonListForTRecognition, useMonitoring,
-										ConfigurationData.MAX_STATES_PER_AUTOMATA, automataPerBatch));
-						Utils.createMessageSequences(new ArrayList<String>(sequences), msgsMapping, false,
-								sequenceFile);
+						if (source != null) {
+							sequences = new HashSet<String>(Utils.collecting(fullSystemAutomaton, source,
+									useMonitoring, ConfigurationData.MAX_STATES_PER_AUTOMATA, automataPerBatch));
+							Utils.createMessageSequences(new ArrayList<String>(sequences), msgsMapping, false,
+									sequenceFile);
+						} else if (tuples != null) {
+							// Each sequence is written as soon as it is found, and the collecting stops
+							// with the sequences found so far when the time budget expires
+							CollectingListener writer = Utils.messageSequenceWriter(msgsMapping, false,
+									sequenceFile, null, sequences);
+							CancellationToken token = CancellationToken
+									.withBudget(ConfigurationData.COLLECTING_TIME_BUDGET);
+							Utils.collecting(fullSystemAutomaton, tuples, useMonitoring,
+									ConfigurationData.MAX_STATES_PER_AUTOMATA, automataPerBatch,
+									(sequence, progress) -> {
+										writer.sequenceFound(sequence, progress);
+										System.out.println(progress);
+									}, token);
+						} else {
+							sequences = new HashSet<String>(
+									Utils.collecting(fullSystemAutomaton, automatonListForTRecognition, useMonitoring,
+											ConfigurationData.MAX_STATES_PER_AUTOMATA, automataPerBatch));
+							Utils.createMessageSequences(new ArrayList<String>(sequences), msgsMapping, false,
+									sequenceFile);
+						}
 					}
 
 					if (generationMode == Mode.STANDARD_CIT) {
-						sequences = new HashSet<String>(Utils.sequencesStandardCIT(automatonListForTRecognition,
-								useMonitoring, automataPerBatch));
+						if (tuples != null)
+							sequences = new HashSet<String>(Utils.sequencesStandardCIT(msgsMapping, strength,
+									ConfigurationData.ALLOW_REPS_IN_TUPLES));
+						else
+							sequences = new HashSet<String>(Utils.sequencesStandardCIT(
+									automatonListForTRecognition, useMonitoring, automataPerBatch));
 						Utils.createMessageSequences(new ArrayList<String>(sequences), msgsMapping, false,
 								sequenceFile);
 					}
@@ -80,8 +126,18 @@ public class SequenceBuilder {
 			for (String s : sequences)
 				System.out.println(s + " ");
 
-			Utils.extractStatistics(strength, useMonitoring, generationMode, repairMode, automataPerBatch, resultFile,
-					msgsMapping, automatonListForTRecognition, fullSystemAutomaton, ((System.currentTimeMillis() - start) / 1000F), sequences);
+			if (source != null)
+				Utils.extractStatistics(strength, useMonitoring, generationMode, repairMode, automataPerBatch,
+						resultFile, msgsMapping, source, fullSystemAutomaton,
+						((System.currentTimeMillis() - start) / 1000F), sequences);
+			else if (tuples != null)
+				Utils.extractStatistics(strength, useMonitoring, generationMode, repairMode, automataPerBatch,
+						resultFile, msgsMapping, tuples, fullSystemAutomaton,
+						((System.currentTimeMillis() - start) / 1000F), sequences);
+			else
+				Utils.extractStatistics(strength, useMonitoring, generationMode, repairMode, automataPerBatch,
+						resultFile, msgsMapping, automatonListForTRecognition, fullSystemAutomaton,
+						((System.currentTimeMillis() - start) / 1000F), sequences);
 		}
 	}
 
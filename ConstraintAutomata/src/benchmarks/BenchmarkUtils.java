@@ -0,0 +1,91 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.Callable;
+
+/**
+ * The Class BenchmarkUtils contains the functions shared by the benchmarks:
+ * each measured operation is executed with the standard output muted, and both
+ * its latency and its heap peak are recorded.
+ */
+public class BenchmarkUtils {
+
+	/**
+	 * The measures of a single run
+	 */
+	public static class Measure<T> {
+		public T result;
+		public long millis;
+		public long peakHeapBytes;
+	}
+
+	/**
+	 * The models bundled in the data folder, as pairs (project name, SMC file)
+	 */
+	public static final String[][] MODELS = { { "Vault", "data/Vault/FSM_Model_ONLY_CONSTRAINT.sm" },
+			{ "Elevator", "data/Elevator/FSM_Model_ONLY_CONSTRAINT.sm" },
+			{ "PatternRecognition", "data/PatternRecognition/FSM_Model_ONLY_CONSTRAINT.sm" },
+			{ "VendingMachine", "data/VendingMachine/VendingMachine.sm" },
+			{ "PHD", "data/PHD/FSM_Model_ONLY_CONSTRAINT.sm" },
+			{ "TrafficLight_Complete", "data/TrafficLight/TrafficLight_Complete.sm" } };
+
+	/**
+	 * Executes the given operation, measuring its duration and the peak of the
+	 * heap usage.
+	 *
+	 * @param operation the operation
+	 * @return the measures
+	 * @throws Exception the exception thrown by the operation
+	 */
+	public static <T> Measure<T> measure(Callable<T> operation) throws Exception {
+		Measure<T> m = new Measure<>();
+		PrintStream out = System.out;
+		System.gc();
+		long baseline = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+				baseline += pool.getUsage().getUsed();
+			}
+		}
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+		long start = System.nanoTime();
+		try {
+			m.result = operation.call();
+		} finally {
+			m.millis = (System.nanoTime() - start) / 1000000;
+			System.setOut(out);
+		}
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				peak += pool.getPeakUsage().getUsed();
+		m.peakHeapBytes = Math.max(0, peak - baseline);
+		return m;
+	}
+
+	/**
+	 * Prints a row of the results table.
+	 *
+	 * @param model   the model
+	 * @param variant the measured variant
+	 * @param m       the measures
+	 * @param extra   the additional information to be printed
+	 */
+	public static void print(String model, String variant, Measure<?> m, String extra) {
+		System.out.println(String.format("%-24s %-18s %10d ms %10.1f MB   %s", model, variant, m.millis,
+				m.peakHeapBytes / (1024.0 * 1024.0), extra));
+	}
+}
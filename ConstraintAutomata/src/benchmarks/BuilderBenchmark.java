@@ -0,0 +1,98 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+
+import benchmarks.BenchmarkUtils.Measure;
+import dk.brics.automaton.Automaton;
+import util.FSMAutomatonBuilder;
+import util.FSMState;
+
+/**
+ * Benchmark of the construction of the automaton of the FSM on synthetic
+ * models with an increasing number of transitions. Every state has the same
+ * number of outgoing transitions, labelled by distinct messages, and is linked
+ * to the next one so that all the states are reachable. The transitions are
+ * given to the builder both as a list and as a stream generated on the fly.
+ *
+ * Usage: BuilderBenchmark [transitions,transitions,...] [transitions per state]
+ */
+public class BuilderBenchmark {
+
+	private static final int N_MESSAGES = 64;
+
+	public static void main(String[] args) throws Exception {
+		String[] sizes = (args.length > 0 ? args[0] : "1000,10000,100000").split(",");
+		int perState = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		BiMap<String, Character> msgsMapping = HashBiMap.create();
+		for (int i = 0; i < N_MESSAGES; i++)
+			msgsMapping.put("MSG" + i, (char) (0x100 + i));
+
+		for (String size : sizes) {
+			int nTransitions = Integer.parseInt(size.trim());
+			String model = "synthetic_" + nTransitions;
+
+			Measure<Automaton> m = BenchmarkUtils.measure(() -> {
+				ArrayList<FSMState> fsm = new ArrayList<>(nTransitions);
+				new SyntheticFSM(nTransitions, perState).forEachRemaining(fsm::add);
+				return FSMAutomatonBuilder.createAutomatonFromFSM(fsm.iterator(), msgsMapping);
+			});
+			BenchmarkUtils.print(model, "list", m, describe(m.result));
+			m = BenchmarkUtils.measure(() -> FSMAutomatonBuilder
+					.createAutomatonFromFSM(new SyntheticFSM(nTransitions, perState), msgsMapping));
+			BenchmarkUtils.print(model, "streaming", m, describe(m.result));
+		}
+	}
+
+	private static String describe(Automaton a) {
+		return a.getNumberOfStates() + " states, " + a.getNumberOfTransitions() + " transitions";
+	}
+
+	/**
+	 * Generates the transitions of a synthetic FSM, state by state.
+	 */
+	private static class SyntheticFSM implements Iterator<FSMState> {
+
+		private final int nTransitions;
+		private final int perState;
+		private final int nStates;
+		private final Random random = new Random(0);
+		private final int[] messages = new int[N_MESSAGES];
+		private int produced;
+
+		SyntheticFSM(int nTransitions, int perState) {
+			this.nTransitions = nTransitions;
+			this.perState = Math.min(perState, N_MESSAGES);
+			this.nStates = (nTransitions + this.perState - 1) / this.perState;
+			for (int i = 0; i < N_MESSAGES; i++)
+				messages[i] = i;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return produced < nTransitions;
+		}
+
+		@Override
+		public FSMState next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			int state = produced / perState;
+			int j = produced % perState;
+			// Partial shuffle of the messages, so that the messages of a state are distinct
+			int r = j + random.nextInt(N_MESSAGES - j);
+			int msg = messages[r];
+			messages[r] = messages[j];
+			messages[j] = msg;
+			int target = j == 0 ? (state + 1) % nStates : random.nextInt(nStates);
+			produced++;
+			return new FSMState("S" + state, "S" + target, "MSG" + msg, "no_response", "");
+		}
+	}
+}
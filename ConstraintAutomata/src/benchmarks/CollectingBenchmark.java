@@ -0,0 +1,68 @@
+package benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+
+import benchmarks.BenchmarkUtils.Measure;
+import config.ConfigurationData;
+import dk.brics.automaton.Automaton;
+import util.FSMAutomatonBuilder;
+import util.OnTheFlyCollector;
+import util.TupleStore;
+import util.Utils;
+
+/**
+ * Benchmark comparing the collecting operation based on the intersection of the
+ * automata with the on-the-fly exploration of the product, using the automata,
+ * the packed representation of the T-combinations or their streaming source.
+ *
+ * Usage: CollectingBenchmark [strength] [runIntersection] [model...]
+ */
+public class CollectingBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int strength = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+		boolean runIntersection = args.length > 1 ? Boolean.parseBoolean(args[1]) : true;
+		List<String> selected = args.length > 2 ? Arrays.asList(args).subList(2, args.length) : null;
+		File msgFile = File.createTempFile("Messages", ".txt");
+		msgFile.deleteOnExit();
+
+		for (String[] model : BenchmarkUtils.MODELS) {
+			if (selected != null && !selected.contains(model[0]))
+				continue;
+			BiMap<String, Character> msgsMapping = HashBiMap.create();
+			Automaton fullSystemAutomaton = FSMAutomatonBuilder.buildFSMAutomatonFromSMC(msgsMapping, model[1],
+					model[0], msgFile.getAbsolutePath());
+			Measure<ArrayList<Automaton>> automata = BenchmarkUtils.measure(() -> Utils
+					.getAutomatonListForTRecognition(msgsMapping, strength, ConfigurationData.ALLOW_REPS_IN_TUPLES));
+			ArrayList<Automaton> automatonList = automata.result;
+			BenchmarkUtils.print(model[0], "tuple automata", automata, automatonList.size() + " tuples");
+			Measure<TupleStore> packed = BenchmarkUtils.measure(() -> Utils.getTupleStoreForTRecognition(msgsMapping,
+					strength, ConfigurationData.ALLOW_REPS_IN_TUPLES));
+			TupleStore tuples = packed.result;
+			BenchmarkUtils.print(model[0], "packed tuples", packed, tuples.size() + " tuples");
+
+			if (runIntersection) {
+				Measure<ArrayList<String>> m = BenchmarkUtils.measure(() -> Utils.collecting(fullSystemAutomaton,
+						automatonList, true, ConfigurationData.MAX_STATES_PER_AUTOMATA, 10));
+				BenchmarkUtils.print(model[0], "intersection", m, m.result.size() + " sequences");
+			}
+			Measure<ArrayList<String>> m = BenchmarkUtils.measure(() -> OnTheFlyCollector.collecting(
+					fullSystemAutomaton, automatonList, true, ConfigurationData.MAX_STATES_PER_AUTOMATA, 10));
+			BenchmarkUtils.print(model[0], "on-the-fly", m, m.result.size() + " sequences");
+			m = BenchmarkUtils.measure(() -> Utils.collecting(fullSystemAutomaton, tuples, true,
+					ConfigurationData.MAX_STATES_PER_AUTOMATA, 10));
+			BenchmarkUtils.print(model[0], "on-the-fly packed", m, m.result.size() + " sequences");
+			m = BenchmarkUtils.measure(() -> Utils.collecting(fullSystemAutomaton,
+					Utils.getTupleSourceForTRecognition(msgsMapping, strength, ConfigurationData.ALLOW_REPS_IN_TUPLES,
+							ConfigurationData.STREAMING_SEED),
+					true, ConfigurationData.MAX_STATES_PER_AUTOMATA, 10));
+			BenchmarkUtils.print(model[0], "streaming", m, m.result.size() + " sequences");
+		}
+	}
+}
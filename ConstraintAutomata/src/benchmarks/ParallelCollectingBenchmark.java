@@ -0,0 +1,56 @@
+package benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+
+import benchmarks.BenchmarkUtils.Measure;
+import config.ConfigurationData;
+import dk.brics.automaton.Automaton;
+import util.FSMAutomatonBuilder;
+import util.OnTheFlyCollector;
+import util.ParallelCollector;
+import util.TupleStore;
+import util.Utils;
+
+/**
+ * Benchmark comparing the sequential on-the-fly collecting with the parallel
+ * one, for an increasing number of workers. The same T-combinations, in the
+ * same order, are given to all the variants.
+ *
+ * Usage: ParallelCollectingBenchmark [strength] [threads,threads,...] [model...]
+ */
+public class ParallelCollectingBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int strength = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+		String[] threads = (args.length > 1 ? args[1] : "1,2,4,8,16,32").split(",");
+		List<String> selected = args.length > 2 ? Arrays.asList(args).subList(2, args.length) : null;
+		File msgFile = File.createTempFile("Messages", ".txt");
+		msgFile.deleteOnExit();
+
+		for (String[] model : BenchmarkUtils.MODELS) {
+			if (selected != null && !selected.contains(model[0]))
+				continue;
+			BiMap<String, Character> msgsMapping = HashBiMap.create();
+			Automaton fullSystemAutomaton = FSMAutomatonBuilder.buildFSMAutomatonFromSMC(msgsMapping, model[1],
+					model[0], msgFile.getAbsolutePath());
+			TupleStore tuples = Utils.getTupleStoreForTRecognition(msgsMapping, strength,
+					ConfigurationData.ALLOW_REPS_IN_TUPLES);
+
+			Measure<ArrayList<String>> m = BenchmarkUtils.measure(() -> OnTheFlyCollector.collecting(
+					fullSystemAutomaton, tuples, true, ConfigurationData.MAX_STATES_PER_AUTOMATA, 10));
+			BenchmarkUtils.print(model[0], "sequential", m, m.result.size() + " sequences");
+			for (String t : threads) {
+				int nThreads = Integer.parseInt(t.trim());
+				m = BenchmarkUtils.measure(() -> ParallelCollector.collecting(fullSystemAutomaton, tuples, true,
+						ConfigurationData.MAX_STATES_PER_AUTOMATA, 10, nThreads));
+				BenchmarkUtils.print(model[0], nThreads + " workers", m, m.result.size() + " sequences");
+			}
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+
+import benchmarks.BenchmarkUtils.Measure;
+import config.ConfigurationData;
+import dk.brics.automaton.Automaton;
+import util.FSMAutomatonBuilder;
+import util.MsgPair;
+import util.MsgTriad;
+import util.Utils;
+
+/**
+ * Benchmark comparing the construction of the automata recognizing the
+ * T-combinations from regular expressions with their direct construction.
+ *
+ * Usage: TupleAutomataBenchmark [strength] [model...]
+ */
+public class TupleAutomataBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int strength = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		List<String> selected = args.length > 1 ? Arrays.asList(args).subList(1, args.length) : null;
+		File msgFile = File.createTempFile("Messages", ".txt");
+		msgFile.deleteOnExit();
+
+		for (String[] model : BenchmarkUtils.MODELS) {
+			if (selected != null && !selected.contains(model[0]))
+				continue;
+			BiMap<String, Character> msgsMapping = HashBiMap.create();
+			FSMAutomatonBuilder.buildFSMAutomatonFromSMC(msgsMapping, model[1], model[0], msgFile.getAbsolutePath());
+			Measure<ArrayList<Automaton>> regExp, direct;
+			if (strength == 2) {
+				ArrayList<MsgPair<String, String>> couples = Utils.getMsgCouples(msgsMapping,
+						ConfigurationData.ALLOW_REPS_IN_TUPLES);
+				regExp = BenchmarkUtils.measure(() -> Utils.getAutomatonListFromRegExp(couples));
+				direct = BenchmarkUtils.measure(() -> Utils.getAutomatonList(couples));
+			} else {
+				ArrayList<MsgTriad<String, String, String>> triads = Utils.getMsgTriads(msgsMapping,
+						ConfigurationData.ALLOW_REPS_IN_TUPLES);
+				regExp = BenchmarkUtils.measure(() -> Utils.getAutomatonListForTriadsFromRegExp(triads));
+				direct = BenchmarkUtils.measure(() -> Utils.getAutomatonListForTriads(triads));
+			}
+			BenchmarkUtils.print(model[0], "regexp", regExp, regExp.result.size() + " automata");
+			BenchmarkUtils.print(model[0], "direct", direct, direct.result.size() + " automata");
+		}
+	}
+}
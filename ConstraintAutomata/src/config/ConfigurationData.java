@@ -1,8 +1,47 @@
 package config;
 
+import enums.SCAEngine;
+import enums.SuiteObjective;
+
 public class ConfigurationData {
 	public static String ANY_CHAR = ".*";
 	public static boolean NOT_SECOND = false;
 	public static final Boolean ALLOW_REPS_IN_TUPLES = true;
 	public static int MAX_STATES_PER_AUTOMATA = 150000;
+	// Explore the product with the FSM lazily instead of building the intersections
+	public static boolean ON_THE_FLY_COLLECTING = true;
+	// Number of T-combinations kept in memory when they are read from a TupleSource
+	public static int STREAMING_WINDOW = 4096;
+	// Read the T-combinations from a TupleSource even for strength 2 and 3, higher strengths always do
+	public static boolean STREAMING_COLLECTING = false;
+	// Seed of the order in which a TupleSource produces the T-combinations
+	public static long STREAMING_SEED = 0;
+	// Number of workers of the on-the-fly collecting, 1 keeps it sequential
+	public static int COLLECTING_THREADS = 1;
+	// Time after which the collecting stops and keeps the sequences found so far, 0 for no limit [ms]
+	public static long COLLECTING_TIME_BUDGET = 0;
+	// Save the parsed models in binary files, so that the next runs do not parse them again; off by
+	// default, since the files are kept out of the model directories and a cold start parses the model
+	public static boolean MODEL_CACHE_ON_DISK = false;
+	// Directory of the binary files of the parsed models
+	public static String MODEL_CACHE_DIR = System.getProperty("java.io.tmpdir") + "/fsm-model-cache";
+	// Replay the sequences of the products already tested before collecting for a new one; the
+	// suites then contain sequences of other products and the products are processed one at a time
+	public static boolean REUSE_SEQUENCES_ACROSS_PRODUCTS = false;
+	// Cost of the reset message in the transition coverage, with respect to the other messages
+	public static int RESET_COST = 1;
+	// Largest number of reachable states for which the state coverage is computed exactly, with Held-Karp
+	public static int HELD_KARP_MAX_STATES = 18;
+	// Time given to the improvement of the heuristic state coverage [ms]
+	public static long STATE_COVERAGE_TIME_BUDGET = 10000;
+	// Engine generating the sequences of STANDARD_CIT
+	public static SCAEngine SCA_ENGINE = SCAEngine.CONSTRUCTIVE;
+	// Number of seeded orderings of the T-combinations collected in competition, 1 disables the portfolio
+	public static int PORTFOLIO_RUNS = 1;
+	// Seed from which the seeds of the portfolio runs are derived
+	public static long PORTFOLIO_SEED = 0;
+	// Time after which the unfinished portfolio runs are stopped, once one run has finished [ms]
+	public static long PORTFOLIO_TIME_BUDGET = 60000;
+	// Measure minimized by the portfolio
+	public static SuiteObjective PORTFOLIO_OBJECTIVE = SuiteObjective.NUMBER_OF_SEQUENCES;
 }
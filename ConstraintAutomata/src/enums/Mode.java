@@ -7,5 +7,6 @@ public enum Mode {
 	ONLY_CONSTRAINT, // Only valid constraint
 	STANDARD_CIT, // Standard Combinatorial Testing
 	TRANSITIONS_COVERAGE, // Covers all the transitions
-	STATES_COVERAGE // Covers all the states
+	STATES_COVERAGE, // Covers all the states
+	FAMILY_BASED // Combinatorial Testing of all the products at once
 }
\ No newline at end of file
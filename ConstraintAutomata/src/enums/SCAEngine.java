@@ -0,0 +1,9 @@
+package enums;
+
+/**
+ * Engine generating the sequences of the standard Combinatorial Testing
+ */
+public enum SCAEngine {
+	AUTOMATA, // Intersection of the automata of the T-combinations
+	CONSTRUCTIVE // Constructive sequence covering arrays
+}
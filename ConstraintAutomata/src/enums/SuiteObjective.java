@@ -0,0 +1,9 @@
+package enums;
+
+/**
+ * Measure minimized when choosing among many test suites
+ */
+public enum SuiteObjective {
+	NUMBER_OF_SEQUENCES, // The fewest sequences, then the shortest total length
+	TOTAL_LENGTH // The shortest total length, then the fewest sequences
+}
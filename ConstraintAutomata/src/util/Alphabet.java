@@ -0,0 +1,83 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+/**
+ * Class representing the alphabet of the events. Each character used to encode
+ * a message is mapped on a dense integer id, so that automata and tuples can be
+ * stored in primitive arrays. Ids follow the order of the characters.
+ */
+public class Alphabet {
+
+	private final char[] symbols;
+	private final int[] index;
+
+	private Alphabet(char[] symbols) {
+		this.symbols = symbols;
+		this.index = new int[symbols.length == 0 ? 0 : symbols[symbols.length - 1] + 1];
+		Arrays.fill(index, -1);
+		for (int i = 0; i < symbols.length; i++)
+			index[symbols[i]] = i;
+	}
+
+	/**
+	 * Builds the alphabet containing the given characters.
+	 *
+	 * @param chars the characters
+	 * @return the alphabet
+	 */
+	public static Alphabet of(Collection<Character> chars) {
+		TreeSet<Character> sorted = new TreeSet<>(chars);
+		char[] symbols = new char[sorted.size()];
+		int i = 0;
+		for (Character c : sorted)
+			symbols[i++] = c;
+		return new Alphabet(symbols);
+	}
+
+	/**
+	 * Builds the alphabet containing all the characters labelling the transitions
+	 * of the given automaton. It is meant for automata representing a FSM, whose
+	 * transitions are labelled with single characters.
+	 *
+	 * @param automaton the automaton
+	 * @return the alphabet
+	 */
+	public static Alphabet of(Automaton automaton) {
+		TreeSet<Character> chars = new TreeSet<>();
+		for (State s : automaton.getStates())
+			for (Transition t : s.getTransitions())
+				for (char c = t.getMin(); c <= t.getMax() && c >= t.getMin(); c++)
+					chars.add(c);
+		return of(chars);
+	}
+
+	/**
+	 * @return the number of symbols
+	 */
+	public int size() {
+		return symbols.length;
+	}
+
+	/**
+	 * @param id the id of the symbol
+	 * @return the character corresponding to the given id
+	 */
+	public char symbol(int id) {
+		return symbols[id];
+	}
+
+	/**
+	 * @param c the character
+	 * @return the id of the given character, -1 if it is not part of the alphabet
+	 */
+	public int indexOf(char c) {
+		return c < index.length ? index[c] : -1;
+	}
+}
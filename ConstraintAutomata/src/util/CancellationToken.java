@@ -0,0 +1,62 @@
+package util;
+
+/**
+ * Flag polled by long running operations to stop early. A token is cancelled
+ * explicitly, or expires by itself when its deadline passes.
+ */
+public class CancellationToken {
+
+	private static final long NO_DEADLINE = Long.MIN_VALUE;
+
+	/** the value of System.nanoTime() at which the token expires */
+	private final long deadline;
+	private volatile boolean cancelled;
+
+	/**
+	 * Instantiates a token without deadline.
+	 */
+	public CancellationToken() {
+		this.deadline = NO_DEADLINE;
+	}
+
+	private CancellationToken(long deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Instantiates a token expiring after the given time.
+	 *
+	 * @param timeout the time before the expiration [ms]
+	 * @return the token
+	 */
+	public static CancellationToken withTimeout(long timeout) {
+		long deadline = System.nanoTime() + timeout * 1_000_000L;
+		// The deadline must not collide with the marker of the tokens without one
+		return new CancellationToken(deadline == NO_DEADLINE ? deadline + 1 : deadline);
+	}
+
+	/**
+	 * Instantiates a token expiring after the given time, or without deadline if
+	 * the time is not positive.
+	 *
+	 * @param budget the time before the expiration, 0 for no deadline [ms]
+	 * @return the token
+	 */
+	public static CancellationToken withBudget(long budget) {
+		return budget > 0 ? withTimeout(budget) : new CancellationToken();
+	}
+
+	/**
+	 * Cancels the operations polling the token.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return "true" if the token has been cancelled or its deadline has passed
+	 */
+	public boolean isCancelled() {
+		return cancelled || (deadline != NO_DEADLINE && System.nanoTime() - deadline >= 0);
+	}
+}
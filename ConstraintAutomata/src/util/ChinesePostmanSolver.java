@@ -0,0 +1,441 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Solver of the directed Chinese Postman Problem on the transitions of an FSM:
+ * the shortest closed walk from a starting state traversing every transition
+ * at least once. The walk is made Eulerian by repeating the cheapest
+ * transitions, found as a min-cost flow from the states having more incoming
+ * than outgoing transitions to the ones having more outgoing than incoming,
+ * and is then built with Hierholzer's algorithm.
+ *
+ * The flow is computed by a primal-dual algorithm: Dijkstra's algorithm on the
+ * reduced costs updates the potentials, and a blocking flow is pushed along
+ * the edges of null reduced cost. Since the costs are small integers, the
+ * number of phases is small, and everything is kept in arrays of primitives.
+ *
+ * When some state cannot come back to the starting one, a reset edge leading
+ * from every state to the starting one can be added, with its own cost.
+ */
+public class ChinesePostmanSolver {
+
+	/** the label of the reset edges in the walk */
+	public static final int RESET = -1;
+
+	private static final int INF = Integer.MAX_VALUE / 2;
+
+	private ChinesePostmanSolver() {
+	}
+
+	/**
+	 * Solves the problem on the transitions of the FSM.
+	 *
+	 * @param fsm       the compiled FSM
+	 * @param start     the starting state
+	 * @param resetCost the cost of a reset edge, negative if the reset is not
+	 *                  allowed
+	 * @return the walk, as the ids of the transitions and {@link #RESET}; null if
+	 *         some reachable state cannot come back to the starting one and the
+	 *         reset is not allowed
+	 */
+	public static int[] solve(CompiledFSM fsm, int start, int resetCost) {
+		int n = fsm.getNumberOfTransitions();
+		int[] source = new int[n];
+		int[] target = new int[n];
+		for (int t = 0; t < n; t++) {
+			source[t] = fsm.getSource(t);
+			target[t] = fsm.getTarget(t);
+		}
+		return solve(fsm.getNumberOfStates(), source, target, start, resetCost);
+	}
+
+	/**
+	 * Solves the problem on a directed multigraph. Only the edges leaving the
+	 * states reachable from the starting one are covered.
+	 *
+	 * @param nStates   the number of states
+	 * @param source    the source of every edge
+	 * @param target    the target of every edge
+	 * @param start     the starting state
+	 * @param resetCost the cost of a reset edge, negative if the reset is not
+	 *                  allowed
+	 * @return the walk, as the indexes of the edges and {@link #RESET}; null if
+	 *         some reachable state cannot come back to the starting one and the
+	 *         reset is not allowed
+	 * @throws IllegalArgumentException if the starting state does not exist
+	 */
+	public static int[] solve(int nStates, int[] source, int[] target, int start, int resetCost) {
+		if (start < 0 || start >= nStates)
+			throw new IllegalArgumentException("Unknown starting state: " + start);
+
+		// The edges that can be covered are the ones leaving the reachable states
+		boolean[] reachable = reach(nStates, source, target, start);
+		int nEdges = 0;
+		for (int e = 0; e < source.length; e++)
+			if (reachable[source[e]])
+				nEdges++;
+		int[] edges = new int[nEdges];
+		nEdges = 0;
+		for (int e = 0; e < source.length; e++)
+			if (reachable[source[e]])
+				edges[nEdges++] = e;
+
+		// The reset edges are only needed when some state cannot come back
+		boolean[] back = reach(nStates, target, source, start);
+		boolean reset = false;
+		for (int s = 0; s < nStates; s++)
+			if (reachable[s] && !back[s])
+				reset = true;
+		if (reset && resetCost < 0)
+			return null;
+
+		// Imbalance of the states: the ones with more incoming edges must be left
+		// again along the repeated edges
+		int[] balance = new int[nStates];
+		for (int e : edges) {
+			balance[target[e]]++;
+			balance[source[e]]--;
+		}
+
+		FlowNetwork network = new FlowNetwork(nStates + 2, nEdges + nStates * 2);
+		int s = nStates;
+		int t = nStates + 1;
+		int[] arc = new int[nEdges];
+		for (int i = 0; i < nEdges; i++)
+			arc[i] = network.addArc(source[edges[i]], target[edges[i]], INF, 1);
+		int[] resetArc = new int[nStates];
+		Arrays.fill(resetArc, -1);
+		for (int v = 0; v < nStates; v++) {
+			if (reset && reachable[v] && v != start)
+				resetArc[v] = network.addArc(v, start, INF, resetCost);
+			if (balance[v] > 0)
+				network.addArc(s, v, balance[v], 0);
+			else if (balance[v] < 0)
+				network.addArc(v, t, -balance[v], 0);
+		}
+		network.minCostFlow(s, t);
+
+		// Every edge is traversed once, plus the times it is repeated by the flow
+		int total = nEdges;
+		for (int i = 0; i < nEdges; i++)
+			total += network.flow(arc[i]);
+		for (int v = 0; v < nStates; v++)
+			if (resetArc[v] >= 0)
+				total += network.flow(resetArc[v]);
+		int[] from = new int[total];
+		int[] to = new int[total];
+		int[] label = new int[total];
+		int m = 0;
+		for (int i = 0; i < nEdges; i++) {
+			for (int c = network.flow(arc[i]); c >= 0; c--) {
+				from[m] = source[edges[i]];
+				to[m] = target[edges[i]];
+				label[m++] = edges[i];
+			}
+		}
+		for (int v = 0; v < nStates; v++) {
+			for (int c = resetArc[v] >= 0 ? network.flow(resetArc[v]) : 0; c > 0; c--) {
+				from[m] = v;
+				to[m] = start;
+				label[m++] = RESET;
+			}
+		}
+		return eulerianCircuit(nStates, from, to, label, start);
+	}
+
+	/**
+	 * @return the states reachable from the starting one, following the edges
+	 *         from "source" to "target"
+	 */
+	private static boolean[] reach(int nStates, int[] source, int[] target, int start) {
+		int[] first = new int[nStates + 1];
+		for (int e = 0; e < source.length; e++)
+			first[source[e] + 1]++;
+		for (int v = 0; v < nStates; v++)
+			first[v + 1] += first[v];
+		int[] adj = new int[source.length];
+		int[] fill = Arrays.copyOf(first, nStates);
+		for (int e = 0; e < source.length; e++)
+			adj[fill[source[e]]++] = target[e];
+
+		boolean[] seen = new boolean[nStates];
+		int[] queue = new int[nStates];
+		int head = 0;
+		int tail = 0;
+		seen[start] = true;
+		queue[tail++] = start;
+		while (head < tail) {
+			int v = queue[head++];
+			for (int i = first[v]; i < first[v + 1]; i++) {
+				if (!seen[adj[i]]) {
+					seen[adj[i]] = true;
+					queue[tail++] = adj[i];
+				}
+			}
+		}
+		return seen;
+	}
+
+	/**
+	 * Builds the Eulerian circuit of a balanced multigraph with Hierholzer's
+	 * algorithm.
+	 *
+	 * @return the labels of the edges, in the order of the circuit
+	 */
+	private static int[] eulerianCircuit(int nStates, int[] from, int[] to, int[] label, int start) {
+		int m = from.length;
+		int[] first = new int[nStates + 1];
+		for (int e = 0; e < m; e++)
+			first[from[e] + 1]++;
+		for (int v = 0; v < nStates; v++)
+			first[v + 1] += first[v];
+		int[] adj = new int[m];
+		int[] next = Arrays.copyOf(first, nStates);
+		for (int e = 0; e < m; e++)
+			adj[next[from[e]]++] = e;
+		System.arraycopy(first, 0, next, 0, nStates);
+
+		int[] circuit = new int[m];
+		int n = m;
+		int[] stackState = new int[m + 1];
+		int[] stackEdge = new int[m + 1];
+		int top = 0;
+		stackState[0] = start;
+		stackEdge[0] = -1;
+		while (top >= 0) {
+			int v = stackState[top];
+			if (next[v] < first[v + 1]) {
+				int e = adj[next[v]++];
+				top++;
+				stackState[top] = to[e];
+				stackEdge[top] = e;
+			} else {
+				// The edges are closed in reverse order
+				if (stackEdge[top] >= 0)
+					circuit[--n] = label[stackEdge[top]];
+				top--;
+			}
+		}
+		return circuit;
+	}
+
+	/**
+	 * Residual network of a min-cost flow problem. The arcs are stored in pairs,
+	 * so that the reverse of the arc "a" is "a ^ 1".
+	 */
+	private static class FlowNetwork {
+		private final int nNodes;
+		private final int[] head;
+		private int[] next;
+		private int[] to;
+		private int[] cap;
+		private int[] cost;
+		private int nArcs;
+		private final long[] potential;
+
+		FlowNetwork(int nNodes, int expectedArcs) {
+			this.nNodes = nNodes;
+			this.head = new int[nNodes];
+			Arrays.fill(head, -1);
+			this.next = new int[expectedArcs * 2];
+			this.to = new int[expectedArcs * 2];
+			this.cap = new int[expectedArcs * 2];
+			this.cost = new int[expectedArcs * 2];
+			this.potential = new long[nNodes];
+		}
+
+		/**
+		 * @return the id of the arc
+		 */
+		int addArc(int u, int v, int capacity, int c) {
+			if (nArcs + 2 > to.length) {
+				int size = Math.max(to.length * 2, 4);
+				next = Arrays.copyOf(next, size);
+				to = Arrays.copyOf(to, size);
+				cap = Arrays.copyOf(cap, size);
+				cost = Arrays.copyOf(cost, size);
+			}
+			int a = nArcs;
+			link(a, u, v, capacity, c);
+			link(a + 1, v, u, 0, -c);
+			nArcs += 2;
+			return a;
+		}
+
+		private void link(int a, int u, int v, int capacity, int c) {
+			to[a] = v;
+			cap[a] = capacity;
+			cost[a] = c;
+			next[a] = head[u];
+			head[u] = a;
+		}
+
+		/**
+		 * @return the flow on the arc
+		 */
+		int flow(int a) {
+			return cap[a ^ 1];
+		}
+
+		private long reduced(int u, int a) {
+			return cost[a] + potential[u] - potential[to[a]];
+		}
+
+		/**
+		 * Pushes the maximum flow of minimum cost from s to t. The costs of the
+		 * arcs with positive capacity must not be negative.
+		 */
+		void minCostFlow(int s, int t) {
+			long[] dist = new long[nNodes];
+			int[] level = new int[nNodes];
+			int[] current = new int[nNodes];
+			int[] path = new int[nNodes];
+			while (dijkstra(s, t, dist)) {
+				for (int v = 0; v < nNodes; v++)
+					potential[v] += Math.min(dist[v], dist[t]);
+				// Blocking flows along the arcs of null reduced cost
+				while (levels(s, t, level)) {
+					System.arraycopy(head, 0, current, 0, nNodes);
+					while (augment(s, t, level, current, path) > 0)
+						;
+				}
+			}
+		}
+
+		/**
+		 * Computes the distances from s with the reduced costs.
+		 *
+		 * @return "true" if t can still be reached
+		 */
+		private boolean dijkstra(int s, int t, long[] dist) {
+			Arrays.fill(dist, Long.MAX_VALUE);
+			dist[s] = 0;
+			// Binary heap of (distance, node), with lazy deletion of the stale entries
+			long[] heapDist = new long[16];
+			int[] heapNode = new int[16];
+			heapDist[0] = 0;
+			heapNode[0] = s;
+			int size = 1;
+			while (size > 0) {
+				long d = heapDist[0];
+				int u = heapNode[0];
+				if (--size > 0)
+					siftDown(heapDist, heapNode, size, heapDist[size], heapNode[size]);
+				if (d > dist[u])
+					continue;
+				for (int a = head[u]; a >= 0; a = next[a]) {
+					if (cap[a] <= 0)
+						continue;
+					int v = to[a];
+					long nd = d + reduced(u, a);
+					if (nd < dist[v]) {
+						dist[v] = nd;
+						if (size == heapDist.length) {
+							heapDist = Arrays.copyOf(heapDist, size * 2);
+							heapNode = Arrays.copyOf(heapNode, size * 2);
+						}
+						siftUp(heapDist, heapNode, size++, nd, v);
+					}
+				}
+			}
+			return dist[t] != Long.MAX_VALUE;
+		}
+
+		private static void siftUp(long[] heapDist, int[] heapNode, int i, long d, int node) {
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (heapDist[parent] <= d)
+					break;
+				heapDist[i] = heapDist[parent];
+				heapNode[i] = heapNode[parent];
+				i = parent;
+			}
+			heapDist[i] = d;
+			heapNode[i] = node;
+		}
+
+		private static void siftDown(long[] heapDist, int[] heapNode, int size, long d, int node) {
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size)
+					break;
+				if (child + 1 < size && heapDist[child + 1] < heapDist[child])
+					child++;
+				if (heapDist[child] >= d)
+					break;
+				heapDist[i] = heapDist[child];
+				heapNode[i] = heapNode[child];
+				i = child;
+			}
+			heapDist[i] = d;
+			heapNode[i] = node;
+		}
+
+		private boolean admissible(int u, int a) {
+			return cap[a] > 0 && reduced(u, a) == 0;
+		}
+
+		/**
+		 * Builds the levels of the nodes on the admissible arcs, breadth-first.
+		 *
+		 * @return "true" if t can be reached
+		 */
+		private boolean levels(int s, int t, int[] level) {
+			Arrays.fill(level, -1);
+			int[] queue = new int[nNodes];
+			int headQ = 0;
+			int tail = 0;
+			level[s] = 0;
+			queue[tail++] = s;
+			while (headQ < tail) {
+				int u = queue[headQ++];
+				for (int a = head[u]; a >= 0; a = next[a]) {
+					int v = to[a];
+					if (level[v] < 0 && admissible(u, a)) {
+						level[v] = level[u] + 1;
+						queue[tail++] = v;
+					}
+				}
+			}
+			return level[t] >= 0;
+		}
+
+		/**
+		 * Finds an augmenting path on the level graph, iteratively, and pushes
+		 * its bottleneck.
+		 *
+		 * @return the pushed flow, 0 if there is no path left
+		 */
+		private int augment(int s, int t, int[] level, int[] current, int[] path) {
+			int depth = 0;
+			int u = s;
+			while (u != t) {
+				int a = current[u];
+				while (a >= 0 && !(level[to[a]] == level[u] + 1 && admissible(u, a)))
+					a = next[a];
+				current[u] = a;
+				if (a < 0) {
+					// Dead end: never visit the node again in this phase
+					if (u == s)
+						return 0;
+					level[u] = -1;
+					u = to[path[--depth] ^ 1];
+					current[u] = next[current[u]];
+					continue;
+				}
+				path[depth++] = a;
+				u = to[a];
+			}
+			int pushed = INF;
+			for (int i = 0; i < depth; i++)
+				pushed = Math.min(pushed, cap[path[i]]);
+			for (int i = 0; i < depth; i++) {
+				cap[path[i]] -= pushed;
+				cap[path[i] ^ 1] += pushed;
+			}
+			return pushed;
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package util;
+
+/**
+ * Receives the sequences of the collecting operation as soon as their batch is
+ * closed, so that they can be written or executed while the generation goes
+ * on.
+ */
+@FunctionalInterface
+public interface CollectingListener {
+
+	/**
+	 * Called for every sequence, in the order of the suite, from the thread
+	 * running the collecting.
+	 *
+	 * @param sequence the sequence of chars
+	 * @param progress the counters including the sequence
+	 */
+	void sequenceFound(String sequence, CollectingProgress progress);
+}
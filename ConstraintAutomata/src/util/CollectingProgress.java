@@ -0,0 +1,88 @@
+package util;
+
+/**
+ * Counters of the collecting operation, taken when a sequence is found. The
+ * T-combinations are split into the infeasible ones, which the FSM cannot
+ * cover, the covered ones and the remaining ones.
+ */
+public class CollectingProgress {
+
+	private final int total;
+	private final int infeasible;
+	private final int remaining;
+	private final int sequences;
+	private final long totalLength;
+	private final long elapsed;
+
+	CollectingProgress(int total, int infeasible, int remaining, int sequences, long totalLength, long elapsed) {
+		this.total = total;
+		this.infeasible = infeasible;
+		this.remaining = remaining;
+		this.sequences = sequences;
+		this.totalLength = totalLength;
+		this.elapsed = elapsed;
+	}
+
+	/**
+	 * @return the number of T-combinations to be covered
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the number of T-combinations the FSM cannot cover
+	 */
+	public int getInfeasible() {
+		return infeasible;
+	}
+
+	/**
+	 * @return the number of T-combinations covered by the sequences found so far
+	 */
+	public int getCovered() {
+		return total - infeasible - remaining;
+	}
+
+	/**
+	 * @return the number of feasible T-combinations not yet covered
+	 */
+	public int getRemaining() {
+		return remaining;
+	}
+
+	/**
+	 * @return the fraction of the feasible T-combinations covered so far
+	 */
+	public double getCoverage() {
+		int feasible = total - infeasible;
+		return feasible == 0 ? 1 : (double) getCovered() / feasible;
+	}
+
+	/**
+	 * @return the number of sequences found so far
+	 */
+	public int getSequences() {
+		return sequences;
+	}
+
+	/**
+	 * @return the sum of the lengths of the sequences found so far
+	 */
+	public long getTotalLength() {
+		return totalLength;
+	}
+
+	/**
+	 * @return the time since the start of the collecting [ms]
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	@Override
+	public String toString() {
+		return "Sequences: " + sequences + ", covered: " + getCovered() + " of " + (total - infeasible)
+				+ " (infeasible: " + infeasible + "), remaining: " + remaining;
+	}
+}
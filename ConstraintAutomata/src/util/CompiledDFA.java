@@ -0,0 +1,169 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+/**
+ * Class representing a deterministic automaton compiled into a transition
+ * table. States are numbered in breadth-first order starting from the initial
+ * state (which has id 0), and symbols are the ids of an {@link Alphabet}.
+ */
+public class CompiledDFA implements TupleRecognizer {
+
+	private final Alphabet alphabet;
+	private final int numberOfStates;
+	private final int[] transitions;
+	private final boolean[] accept;
+
+	/**
+	 * @param alphabet       the alphabet
+	 * @param numberOfStates the number of states, the initial one has id 0
+	 * @param transitions    the target of every state and symbol, at index
+	 *                       state * k + symbol, -1 if missing
+	 * @param accept         the accepting states
+	 */
+	CompiledDFA(Alphabet alphabet, int numberOfStates, int[] transitions, boolean[] accept) {
+		this.alphabet = alphabet;
+		this.numberOfStates = numberOfStates;
+		this.transitions = transitions;
+		this.accept = accept;
+	}
+
+	/**
+	 * Compiles the given automaton over the characters labelling its transitions.
+	 *
+	 * @param automaton the automaton
+	 * @return the compiled automaton
+	 */
+	public static CompiledDFA compile(Automaton automaton) {
+		return compile(automaton, Alphabet.of(automaton));
+	}
+
+	/**
+	 * Compiles the given automaton over the given alphabet. Characters not
+	 * belonging to the alphabet are not considered. A nondeterministic automaton
+	 * is determinized first, on a copy, so that no successor is lost.
+	 *
+	 * @param automaton the automaton
+	 * @param alphabet  the alphabet
+	 * @return the compiled automaton
+	 */
+	public static CompiledDFA compile(Automaton automaton, Alphabet alphabet) {
+		if (!isDeterministic(automaton)) {
+			automaton = automaton.clone();
+			automaton.determinize();
+		}
+		int k = alphabet.size();
+		HashMap<State, Integer> ids = new HashMap<>();
+		ArrayList<State> states = new ArrayList<>();
+		ArrayDeque<State> queue = new ArrayDeque<>();
+		State initial = automaton.getInitialState();
+		ids.put(initial, 0);
+		states.add(initial);
+		queue.add(initial);
+
+		// Visit the automaton breadth-first to number the states
+		int[] table = new int[16 * Math.max(k, 1)];
+		while (!queue.isEmpty()) {
+			State s = queue.poll();
+			int from = ids.get(s);
+			if ((from + 1) * k > table.length)
+				table = Arrays.copyOf(table, Math.max(table.length * 2, (from + 1) * k));
+			for (int c = 0; c < k; c++) {
+				State dest = s.step(alphabet.symbol(c));
+				if (dest == null) {
+					table[from * k + c] = -1;
+				} else {
+					Integer to = ids.get(dest);
+					if (to == null) {
+						to = states.size();
+						ids.put(dest, to);
+						states.add(dest);
+						queue.add(dest);
+					}
+					table[from * k + c] = to;
+				}
+			}
+		}
+
+		boolean[] accept = new boolean[states.size()];
+		for (int i = 0; i < states.size(); i++)
+			accept[i] = states.get(i).isAccept();
+
+		return new CompiledDFA(alphabet, states.size(), Arrays.copyOf(table, states.size() * k), accept);
+	}
+
+	/**
+	 * Checks the transitions of every state, since the flag of the automaton is
+	 * not reliable on the automata built transition by transition.
+	 *
+	 * @return "false" if some state has more than one transition on a char
+	 */
+	private static boolean isDeterministic(Automaton automaton) {
+		for (State s : automaton.getStates()) {
+			Transition[] sorted = s.getTransitions().toArray(new Transition[0]);
+			Arrays.sort(sorted, (a, b) -> Character.compare(a.getMin(), b.getMin()));
+			for (int i = 1; i < sorted.length; i++)
+				if (sorted[i].getMin() <= sorted[i - 1].getMax())
+					return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int initialState() {
+		return 0;
+	}
+
+	@Override
+	public int step(int state, int symbol) {
+		return transitions[state * alphabet.size() + symbol];
+	}
+
+	@Override
+	public boolean isAccept(int state) {
+		return accept[state];
+	}
+
+	@Override
+	public int getNumberOfStates() {
+		return numberOfStates;
+	}
+
+	/**
+	 * @return the alphabet of the automaton
+	 */
+	public Alphabet getAlphabet() {
+		return alphabet;
+	}
+
+	/**
+	 * Executes the automaton on the given string.
+	 *
+	 * @param s the string
+	 * @return the reached state, -1 if the string cannot be executed
+	 */
+	public int run(String s) {
+		int state = 0;
+		for (int i = 0; i < s.length() && state >= 0; i++) {
+			int symbol = alphabet.indexOf(s.charAt(i));
+			state = symbol < 0 ? -1 : step(state, symbol);
+		}
+		return state;
+	}
+
+	/**
+	 * @param s the string
+	 * @return "true" if the automaton accepts the given string
+	 */
+	public boolean accepts(String s) {
+		int state = run(s);
+		return state >= 0 && accept[state];
+	}
+}
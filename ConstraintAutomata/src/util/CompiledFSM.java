@@ -0,0 +1,500 @@
+package util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.apache.log4j.Logger;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DirectedPseudograph;
+import org.jgrapht.util.SupplierUtil;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+import net.sf.smc.model.SmcFSM;
+import net.sf.smc.model.SmcGuard;
+import net.sf.smc.model.SmcMap;
+import net.sf.smc.model.SmcState;
+import net.sf.smc.model.SmcTransition;
+import net.sf.smc.model.TargetLanguage;
+import net.sf.smc.parser.SmcParser;
+
+/**
+ * Compiled representation of a FSM. States, events and guards are numbered
+ * densely, in order of appearance, and the transitions are stored as parallel
+ * arrays (source, event, target, output, guard), so that all the other
+ * representations of the model (the automaton, the graph, the mapping of the
+ * messages) are derived from a single parsing of the SMC file.
+ */
+public class CompiledFSM {
+
+	/** The name of the output event of the transitions not sending any message */
+	public static final String NO_RESPONSE = "no_response";
+
+	private final String[] stateNames;
+	private final HashMap<String, Integer> stateIds;
+	private final String[] eventNames;
+	private final HashMap<String, Integer> eventIds;
+	private final String[] guards;
+	private final int[] source;
+	private final int[] event;
+	private final int[] target;
+	private final int[] output;
+	private final int[] guard;
+
+	private CompiledFSM(String[] stateNames, String[] eventNames, String[] guards, int[] source, int[] event,
+			int[] target, int[] output, int[] guard) {
+		this.stateNames = stateNames;
+		this.stateIds = index(stateNames);
+		this.eventNames = eventNames;
+		this.eventIds = index(eventNames);
+		this.guards = guards;
+		this.source = source;
+		this.event = event;
+		this.target = target;
+		this.output = output;
+		this.guard = guard;
+	}
+
+	private CompiledFSM(Builder b) {
+		this(b.stateNames.toArray(new String[0]), b.eventNames.toArray(new String[0]), b.guards.toArray(new String[0]),
+				Arrays.copyOf(b.source, b.size), Arrays.copyOf(b.event, b.size), Arrays.copyOf(b.target, b.size),
+				Arrays.copyOf(b.output, b.size), Arrays.copyOf(b.guard, b.size));
+	}
+
+	private static HashMap<String, Integer> index(String[] names) {
+		HashMap<String, Integer> ids = new HashMap<>();
+		for (int i = 0; i < names.length; i++)
+			ids.put(names[i], i);
+		return ids;
+	}
+
+	/**
+	 * Parses a State Machine described using SMC.
+	 *
+	 * @param fsmFilePath the fsm file path
+	 * @param projectName the project name
+	 * @return the compiled FSM
+	 * @throws IOException               Signals that an I/O exception has occurred.
+	 * @throws IllegalAccessException    the illegal access exception
+	 * @throws InvocationTargetException the invocation target exception
+	 */
+	public static CompiledFSM parse(String fsmFilePath, String projectName)
+			throws IOException, IllegalAccessException, InvocationTargetException {
+		Logger logger = Logger.getLogger(CompiledFSM.class);
+		SmcFSM fsMachine;
+		try (FileInputStream in = new FileInputStream(new File(fsmFilePath))) {
+			fsMachine = new SmcParser(projectName, in, TargetLanguage.LANG_NOT_SET, false).parse();
+		}
+
+		logger.debug("----------------------------------");
+		logger.debug("CREATING THE FINAL STATE MACHINE\n");
+		logger.debug("----------------------------------");
+
+		Builder b = new Builder();
+		for (SmcMap s : fsMachine.getMaps()) {
+			for (SmcState st : s.getStates()) {
+				for (SmcTransition t : st.getTransitions()) {
+					String startState = t.getState().getName().toString().split("[.]")[0];
+					for (SmcGuard g : t.getGuards()) {
+						String endState = g.getEndState().split("[.]")[0];
+						String outMessage = g.getActions().get(0).getName();
+						b.add(startState, endState, g.getName(), outMessage, g.getCondition());
+						logger.debug("Adding new state: " + startState + "(" + g.getName() + ") -> " + endState + "("
+								+ outMessage + ")\n");
+					}
+				}
+			}
+		}
+
+		logger.debug("END: CREATING THE FINAL STATE MACHINE\n");
+		return new CompiledFSM(b);
+	}
+
+	/**
+	 * Compiles the transitions of a FSM, reading them one at a time.
+	 *
+	 * @param fsm the transitions of the fsm
+	 * @return the compiled FSM
+	 */
+	public static CompiledFSM from(Iterator<FSMState> fsm) {
+		Builder b = new Builder();
+		while (fsm.hasNext()) {
+			FSMState s = fsm.next();
+			b.add(s.getStartStateName(), s.getFinalStateName(), s.getReceivedMsg(), s.getSentMsg(), s.getCondition());
+		}
+		return new CompiledFSM(b);
+	}
+
+	/**
+	 * @return the number of states
+	 */
+	public int getNumberOfStates() {
+		return stateNames.length;
+	}
+
+	/**
+	 * @return the number of events, both received and sent
+	 */
+	public int getNumberOfEvents() {
+		return eventNames.length;
+	}
+
+	/**
+	 * @return the number of transitions
+	 */
+	public int getNumberOfTransitions() {
+		return source.length;
+	}
+
+	/**
+	 * @return the number of distinct guards
+	 */
+	public int getNumberOfGuards() {
+		return guards.length;
+	}
+
+	/**
+	 * @param state the id of the state
+	 * @return the name of the state
+	 */
+	public String getStateName(int state) {
+		return stateNames[state];
+	}
+
+	/**
+	 * @param name the name of the state
+	 * @return the id of the state, -1 if the state does not exist
+	 */
+	public int getStateId(String name) {
+		Integer id = stateIds.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param e the id of the event
+	 * @return the name of the event
+	 */
+	public String getEventName(int e) {
+		return eventNames[e];
+	}
+
+	/**
+	 * @param name the name of the event
+	 * @return the id of the event, -1 if the event does not exist
+	 */
+	public int getEventId(String name) {
+		Integer id = eventIds.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param g the id of the guard
+	 * @return the condition of the guard
+	 */
+	public String getGuardCondition(int g) {
+		return guards[g];
+	}
+
+	/**
+	 * @param t the id of the transition
+	 * @return the id of the source state
+	 */
+	public int getSource(int t) {
+		return source[t];
+	}
+
+	/**
+	 * @param t the id of the transition
+	 * @return the id of the received event
+	 */
+	public int getEvent(int t) {
+		return event[t];
+	}
+
+	/**
+	 * @param t the id of the transition
+	 * @return the id of the target state
+	 */
+	public int getTarget(int t) {
+		return target[t];
+	}
+
+	/**
+	 * @param t the id of the transition
+	 * @return the id of the sent event, -1 if no event is sent
+	 */
+	public int getOutput(int t) {
+		return output[t];
+	}
+
+	/**
+	 * @param t the id of the transition
+	 * @return the id of the guard
+	 */
+	public int getGuard(int t) {
+		return guard[t];
+	}
+
+	/**
+	 * @return the set containing all the transitions
+	 */
+	public BitSet allTransitions() {
+		BitSet all = new BitSet(source.length);
+		all.set(0, source.length);
+		return all;
+	}
+
+	/**
+	 * Builds the mapping between the messages, in upper case, and single chars
+	 * for all the events of the FSM.
+	 *
+	 * @param msgsMapping the mapping to be filled
+	 */
+	public void mapEvents(BiMap<String, Character> msgsMapping) {
+		mapEvents(msgsMapping, allTransitions());
+	}
+
+	/**
+	 * Builds the mapping between the messages, in upper case, and single chars
+	 * for the events received or sent by the given transitions. Characters having
+	 * a special meaning in the regular expressions are skipped.
+	 *
+	 * @param msgsMapping the mapping to be filled
+	 * @param enabled     the transitions to be considered
+	 */
+	public void mapEvents(BiMap<String, Character> msgsMapping, BitSet enabled) {
+		boolean[] used = new boolean[eventNames.length];
+		for (int t = enabled.nextSetBit(0); t >= 0; t = enabled.nextSetBit(t + 1)) {
+			used[event[t]] = true;
+			if (output[t] >= 0)
+				used[output[t]] = true;
+		}
+		char code = 64;
+		for (int e = 0; e < eventNames.length; e++) {
+			if (!used[e])
+				continue;
+			while (code == ')' || code == '(' || code == '*' || code == '?' || code == '&' || code == '|' || code == '+'
+					|| code == '@' || code == '}' || code == '{' || code == '~' || code == '^' || code == '['
+					|| code == ']' || code == '-' || code == '.' || code == '#' || code == '\\' || code == '_'
+					|| code == '<' || code == '>')
+				code++;
+			msgsMapping.put(eventNames[e].toUpperCase(), code);
+			code++;
+		}
+	}
+
+	/**
+	 * Restricts a mapping of all the messages to the ones received or sent by the
+	 * given transitions, keeping their chars.
+	 *
+	 * @param msgsMapping the mapping of all the messages
+	 * @param enabled     the transitions to be considered
+	 * @return the restricted mapping
+	 */
+	public BiMap<String, Character> restrictMapping(BiMap<String, Character> msgsMapping, BitSet enabled) {
+		BiMap<String, Character> restricted = HashBiMap.create();
+		for (int t = enabled.nextSetBit(0); t >= 0; t = enabled.nextSetBit(t + 1)) {
+			String msg = eventNames[event[t]].toUpperCase();
+			restricted.put(msg, msgsMapping.get(msg));
+			if (output[t] >= 0) {
+				msg = eventNames[output[t]].toUpperCase();
+				restricted.put(msg, msgsMapping.get(msg));
+			}
+		}
+		return restricted;
+	}
+
+	/**
+	 * Builds the automaton of the FSM. The source of the first transition is the
+	 * initial state.
+	 *
+	 * @param msgsMapping the mapping of the messages, in upper case, in chars
+	 * @return the automaton
+	 */
+	public Automaton toAutomaton(BiMap<String, Character> msgsMapping) {
+		return toAutomaton(msgsMapping, allTransitions());
+	}
+
+	/**
+	 * Builds the automaton of the FSM, considering only the given transitions.
+	 * The source of the first of them is the initial state.
+	 *
+	 * @param msgsMapping the mapping of the messages, in upper case, in chars
+	 * @param enabled     the transitions to be considered
+	 * @return the automaton
+	 */
+	public Automaton toAutomaton(BiMap<String, Character> msgsMapping, BitSet enabled) {
+		Automaton automa = new Automaton();
+		State[] states = new State[stateNames.length];
+		Character[] symbols = new Character[eventNames.length];
+		for (int e = 0; e < eventNames.length; e++)
+			symbols[e] = msgsMapping.get(eventNames[e].toUpperCase());
+
+		int first = enabled.nextSetBit(0);
+		automa.setInitialState(first >= 0 ? getState(states, source[first]) : newState());
+		for (int t = first; t >= 0; t = enabled.nextSetBit(t + 1)) {
+			if (symbols[event[t]] == null)
+				throw new IllegalArgumentException("Message not mapped: " + eventNames[event[t]]);
+			getState(states, source[t]).addTransition(new Transition(symbols[event[t]], getState(states, target[t])));
+		}
+		return automa;
+	}
+
+	private static State getState(State[] states, int id) {
+		if (states[id] == null)
+			states[id] = newState();
+		return states[id];
+	}
+
+	private static State newState() {
+		State s = new State();
+		s.setAccept(true);
+		return s;
+	}
+
+	/**
+	 * Builds the graph of the FSM: the vertexes are the names of the states and
+	 * the edges are the ids of the transitions.
+	 *
+	 * @return the graph
+	 */
+	public Graph<String, Integer> toGraph() {
+		// New edges, as the ones added by the Chinese Postman solver, get ids following
+		// the ones of the transitions
+		Graph<String, Integer> graph = new DirectedPseudograph<String, Integer>(SupplierUtil.createStringSupplier(),
+				SupplierUtil.createIntegerSupplier(source.length), false);
+		for (int t = 0; t < source.length; t++) {
+			graph.addVertex(stateNames[source[t]]);
+			graph.addVertex(stateNames[target[t]]);
+			graph.addEdge(stateNames[source[t]], stateNames[target[t]], t);
+		}
+		return graph;
+	}
+
+	/**
+	 * Writes the compiled FSM in binary form.
+	 *
+	 * @param out the output stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void write(DataOutputStream out) throws IOException {
+		writeStrings(out, stateNames);
+		writeStrings(out, eventNames);
+		writeStrings(out, guards);
+		out.writeInt(source.length);
+		for (int t = 0; t < source.length; t++) {
+			out.writeInt(source[t]);
+			out.writeInt(event[t]);
+			out.writeInt(target[t]);
+			out.writeInt(output[t]);
+			out.writeInt(guard[t]);
+		}
+	}
+
+	/**
+	 * Reads a compiled FSM written by {@link #write(DataOutputStream)}.
+	 *
+	 * @param in the input stream
+	 * @return the compiled FSM
+	 * @throws IOException Signals that an I/O exception has occurred, or that the
+	 *                     data are not consistent.
+	 */
+	static CompiledFSM read(DataInputStream in) throws IOException {
+		String[] stateNames = readStrings(in);
+		String[] eventNames = readStrings(in);
+		String[] guards = readStrings(in);
+		int n = in.readInt();
+		if (n < 0)
+			throw new IOException("Invalid number of transitions: " + n);
+		int[] source = new int[n], event = new int[n], target = new int[n], output = new int[n], guard = new int[n];
+		for (int t = 0; t < n; t++) {
+			source[t] = checkId(in.readInt(), 0, stateNames.length);
+			event[t] = checkId(in.readInt(), 0, eventNames.length);
+			target[t] = checkId(in.readInt(), 0, stateNames.length);
+			output[t] = checkId(in.readInt(), -1, eventNames.length);
+			guard[t] = checkId(in.readInt(), 0, guards.length);
+		}
+		return new CompiledFSM(stateNames, eventNames, guards, source, event, target, output, guard);
+	}
+
+	private static int checkId(int id, int min, int size) throws IOException {
+		if (id < min || id >= size)
+			throw new IOException("Invalid id: " + id);
+		return id;
+	}
+
+	private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+		out.writeInt(strings.length);
+		for (String s : strings)
+			out.writeUTF(s);
+	}
+
+	private static String[] readStrings(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		if (n < 0)
+			throw new IOException("Invalid number of strings: " + n);
+		String[] strings = new String[n];
+		for (int i = 0; i < n; i++)
+			strings[i] = in.readUTF();
+		return strings;
+	}
+
+	/**
+	 * Accumulates the transitions while the model is read.
+	 */
+	private static class Builder {
+		private final ArrayList<String> stateNames = new ArrayList<>();
+		private final HashMap<String, Integer> stateIds = new HashMap<>();
+		private final ArrayList<String> eventNames = new ArrayList<>();
+		private final HashMap<String, Integer> eventIds = new HashMap<>();
+		private final ArrayList<String> guards = new ArrayList<>();
+		private final HashMap<String, Integer> guardIds = new HashMap<>();
+		private int[] source = new int[16];
+		private int[] event = new int[16];
+		private int[] target = new int[16];
+		private int[] output = new int[16];
+		private int[] guard = new int[16];
+		private int size;
+
+		void add(String startState, String endState, String inMessage, String outMessage, String condition) {
+			if (size == source.length) {
+				int n = size * 2;
+				source = Arrays.copyOf(source, n);
+				event = Arrays.copyOf(event, n);
+				target = Arrays.copyOf(target, n);
+				output = Arrays.copyOf(output, n);
+				guard = Arrays.copyOf(guard, n);
+			}
+			source[size] = id(stateIds, stateNames, startState);
+			event[size] = id(eventIds, eventNames, inMessage);
+			target[size] = id(stateIds, stateNames, endState);
+			output[size] = outMessage == null || outMessage.equals(NO_RESPONSE) ? -1
+					: id(eventIds, eventNames, outMessage);
+			guard[size] = id(guardIds, guards, condition == null ? "" : condition);
+			size++;
+		}
+
+		private static int id(HashMap<String, Integer> ids, ArrayList<String> names, String name) {
+			Integer id = ids.get(name);
+			if (id == null) {
+				id = names.size();
+				ids.put(name, id);
+				names.add(name);
+			}
+			return id;
+		}
+	}
+}
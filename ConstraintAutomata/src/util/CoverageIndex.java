@@ -0,0 +1,188 @@
+package util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Index of the T-combinations covered by a set of sequences. Each sequence is
+ * scanned only once: for every length j &lt; t the prefixes of length j already
+ * read are kept, so that each symbol extends them and the T-combinations ending
+ * with it are marked in a bitmap over all the |alphabet|^t T-combinations.
+ *
+ * A T-combination (e1, ..., et) is identified by its code e1 * k^(t-1) + ... +
+ * et, where k is the size of the alphabet.
+ */
+public class CoverageIndex {
+
+	private final Alphabet alphabet;
+	private final int strength;
+	private final boolean notSecond;
+	private final int k;
+	private final long[] covered;
+	private int numberOfCovered;
+
+	/**
+	 * Instantiates a new, empty, coverage index.
+	 *
+	 * @param alphabet  the alphabet of the events
+	 * @param strength  the strength of the T-combinations
+	 * @param notSecond whether the following events must not precede the first
+	 *                  one
+	 */
+	public CoverageIndex(Alphabet alphabet, int strength, boolean notSecond) {
+		this.alphabet = alphabet;
+		this.strength = strength;
+		this.notSecond = notSecond;
+		this.k = alphabet.size();
+		long n = power(k, strength);
+		if (n > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many " + strength + "-combinations: " + n);
+		this.covered = new long[(int) ((n + 63) / 64)];
+	}
+
+	/**
+	 * Instantiates a new, empty, coverage index for the given T-combinations.
+	 *
+	 * @param tuples the T-combinations
+	 */
+	public CoverageIndex(TupleStore tuples) {
+		this(tuples.getAlphabet(), tuples.getStrength(), tuples.isNotSecond());
+	}
+
+	private static long power(int base, int exp) {
+		long n = 1;
+		for (int i = 0; i < exp; i++)
+			n *= base;
+		return n;
+	}
+
+	/**
+	 * @return the alphabet of the events
+	 */
+	public Alphabet getAlphabet() {
+		return alphabet;
+	}
+
+	/**
+	 * @return the strength of the T-combinations
+	 */
+	public int getStrength() {
+		return strength;
+	}
+
+	/**
+	 * @param code the code of the T-combination
+	 * @return "true" if the T-combination has been covered
+	 */
+	public boolean isCovered(int code) {
+		return (covered[code >>> 6] & (1L << code)) != 0;
+	}
+
+	/**
+	 * @return the number of T-combinations covered
+	 */
+	public int getNumberOfCovered() {
+		return numberOfCovered;
+	}
+
+	/**
+	 * Adds to this index the T-combinations covered in another index with the
+	 * same alphabet and strength.
+	 *
+	 * @param other the other index
+	 */
+	public void merge(CoverageIndex other) {
+		numberOfCovered = 0;
+		for (int i = 0; i < covered.length; i++) {
+			covered[i] |= other.covered[i];
+			numberOfCovered += Long.bitCount(covered[i]);
+		}
+	}
+
+	/**
+	 * Scans a sequence of characters.
+	 *
+	 * @param sequence the sequence
+	 * @return the number of newly covered T-combinations
+	 */
+	public int scan(String sequence) {
+		int[] word = new int[sequence.length()];
+		for (int i = 0; i < word.length; i++)
+			word[i] = alphabet.indexOf(sequence.charAt(i));
+		return scan(word, null);
+	}
+
+	/**
+	 * Scans a sequence of symbol ids. Symbols equal to -1 are ignored.
+	 *
+	 * @param word         the sequence of symbol ids
+	 * @param newlyCovered the consumer receiving the code of every newly covered
+	 *                     T-combination, it can be null
+	 * @return the number of newly covered T-combinations
+	 */
+	public int scan(int[] word, IntConsumer newlyCovered) {
+		int before = numberOfCovered;
+		// prefixes[j] contains the codes of the prefixes of length j + 1 already read
+		int[][] prefixes = new int[strength][];
+		int[] nPrefixes = new int[strength];
+		long[][] seen = new long[strength][];
+		for (int j = 0; j < strength - 1; j++) {
+			long n = power(k, j + 1);
+			prefixes[j] = new int[(int) Math.min(n, 16)];
+			seen[j] = new long[(int) ((n + 63) / 64)];
+		}
+		int[] firstOccurrence = new int[k];
+		Arrays.fill(firstOccurrence, Integer.MAX_VALUE);
+
+		for (int p = 0; p < word.length; p++) {
+			int c = word[p];
+			if (c < 0)
+				continue;
+			if (firstOccurrence[c] == Integer.MAX_VALUE)
+				firstOccurrence[c] = p;
+			// Longer prefixes first, so that each symbol is used only once
+			for (int j = strength - 2; j >= 0; j--) {
+				int n = nPrefixes[j];
+				for (int i = 0; i < n; i++) {
+					int code = prefixes[j][i] * k + c;
+					if (j + 1 == strength - 1)
+						cover(code, firstOccurrence, newlyCovered);
+					else
+						addPrefix(prefixes, nPrefixes, seen, j + 1, code);
+				}
+			}
+			if (strength == 1)
+				cover(c, firstOccurrence, newlyCovered);
+			else
+				addPrefix(prefixes, nPrefixes, seen, 0, c);
+		}
+		return numberOfCovered - before;
+	}
+
+	private static void addPrefix(int[][] prefixes, int[] nPrefixes, long[][] seen, int j, int code) {
+		if ((seen[j][code >>> 6] & (1L << code)) != 0)
+			return;
+		seen[j][code >>> 6] |= 1L << code;
+		if (nPrefixes[j] == prefixes[j].length)
+			prefixes[j] = Arrays.copyOf(prefixes[j], prefixes[j].length * 2);
+		prefixes[j][nPrefixes[j]++] = code;
+	}
+
+	private void cover(int code, int[] firstOccurrence, IntConsumer newlyCovered) {
+		if (isCovered(code))
+			return;
+		// With NOT_SECOND, the first event must occur before all the following ones
+		if (notSecond) {
+			int first = code;
+			for (int j = 1; j < strength; j++)
+				first /= k;
+			for (int j = 1, rest = code; j < strength; j++, rest /= k)
+				if (rest % k != first && firstOccurrence[rest % k] < firstOccurrence[first])
+					return;
+		}
+		covered[code >>> 6] |= 1L << code;
+		numberOfCovered++;
+		if (newlyCovered != null)
+			newlyCovered.accept(code);
+	}
+}
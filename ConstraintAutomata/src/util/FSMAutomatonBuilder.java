@@ -1,34 +1,18 @@
 package util;
 
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Iterator;
 
-import org.apache.log4j.Logger;
 import org.jgrapht.Graph;
-import org.jgrapht.graph.DirectedPseudograph;
-import org.jgrapht.util.SupplierUtil;
 
 import com.google.common.collect.BiMap;
 
 import dk.brics.automaton.Automaton;
-import dk.brics.automaton.State;
-import dk.brics.automaton.Transition;
 import javafx.util.Pair;
-import net.sf.smc.model.SmcFSM;
-import net.sf.smc.model.SmcGuard;
-import net.sf.smc.model.SmcMap;
-import net.sf.smc.model.SmcState;
-import net.sf.smc.model.SmcTransition;
-import net.sf.smc.model.TargetLanguage;
-import net.sf.smc.parser.SmcParser;
 
 /**
  * The Class FSMAutomatonBuilder contains methods building automatons from state
@@ -51,47 +35,10 @@ public class FSMAutomatonBuilder {
 	public static Graph<String, Integer> convertSMCToGraph(ArrayList<Pair<Integer, String>> msgIntegerMapping,
 			String fsmFilePath, String projectName)
 			throws IllegalAccessException, InvocationTargetException, IOException {
-		int start = 0;
-
-		File f = new File(fsmFilePath);
-
-		// Parse the SMC file
-		SmcParser p = new SmcParser(projectName, new FileInputStream(f), TargetLanguage.LANG_NOT_SET, false);
-		SmcFSM fsMachine = p.parse();
-
-		// Get the list of the states and compose the Graph
-		ArrayList<SmcMap> stateMaps = (ArrayList<SmcMap>) fsMachine.getMaps();
-		String startState, inMessage, endState;
-		Graph<String, Integer> graph = new DirectedPseudograph<String, Integer>(SupplierUtil.createStringSupplier(),
-				SupplierUtil.createIntegerSupplier(
-						fsMachine.getTransitions().size() * fsMachine.getMaps().get(0).getAllStates().size()),
-				false);
-
-		// Get all the informations contained into the SMC file and compose the Graph
-		for (SmcMap s : stateMaps) {
-			for (SmcState st : s.getStates()) {
-				for (SmcTransition t : st.getTransitions()) {
-
-					startState = t.getState().getName().toString().split("[.]")[0];
-					if (!graph.containsVertex(startState))
-						graph.addVertex(startState);
-
-					for (SmcGuard g : t.getGuards()) {
-						inMessage = g.getName();
-						msgIntegerMapping.add(new Pair<Integer, String>(start++, inMessage));
-						endState = g.getEndState().split("[.]")[0];
-
-						if (!graph.containsVertex(endState))
-							graph.addVertex(endState);
-
-						// Add the transition
-						graph.addEdge(startState, endState, start - 1);
-					}
-				}
-			}
-		}
-
-		return graph;
+		CompiledFSM fsm = ModelCache.get(fsmFilePath, projectName);
+		for (int t = 0; t < fsm.getNumberOfTransitions(); t++)
+			msgIntegerMapping.add(new Pair<Integer, String>(t, fsm.getEventName(fsm.getEvent(t))));
+		return fsm.toGraph();
 	}
 
 	/**
@@ -111,72 +58,18 @@ public class FSMAutomatonBuilder {
 	public static Automaton buildFSMAutomatonFromSMC(BiMap<String, Character> msgsMapping, String fsmFilePath,
 			String projectName, String msgFilePath)
 			throws IOException, IllegalAccessException, InvocationTargetException {
-		File f = new File(fsmFilePath);
-
-		// Parse the SMC file
-		SmcParser p = new SmcParser(projectName, new FileInputStream(f), TargetLanguage.LANG_NOT_SET, false);
-		SmcFSM fsMachine = p.parse();
-
-		// Get the list of the states
-		ArrayList<SmcMap> stateMaps = (ArrayList<SmcMap>) fsMachine.getMaps();
-
-		// Create the new automaton
-		Logger logger = Logger.getLogger(FSMAutomatonBuilder.class);
-		HashSet<String> msgList = new HashSet<>();
-		ArrayList<FSMState> fsm = new ArrayList<>();
-		FileWriter fout = new FileWriter(msgFilePath);
-		BufferedWriter msgFile = new BufferedWriter(fout);
-		String startState, inMessage, endState, outMessage, condition;
-		char code = 64;
-
-		logger.debug("----------------------------------");
-		logger.debug("CREATING THE FINAL STATE MACHINE\n");
-		logger.debug("----------------------------------");
-
-		for (SmcMap s : stateMaps) {
-			for (SmcState st : s.getStates()) {
-				for (SmcTransition t : st.getTransitions()) {
-					startState = t.getState().getName().toString().split("[.]")[0];
-					condition = "";
-					for (SmcGuard g : t.getGuards()) {
-						inMessage = g.getName();
-						endState = g.getEndState().split("[.]")[0];
-						outMessage = g.getActions().get(0).getName();
-						condition = g.getCondition();
-
-						// Save the messages and the FSM
-						msgList.add(inMessage);
-						if (!outMessage.equals("no_response"))
-							msgList.add(outMessage);
-						fsm.add(new FSMState(startState, endState, inMessage, outMessage, condition));
-						logger.debug("Adding new state: " + startState + "(" + inMessage + ") -> " + endState + "("
-								+ outMessage + ")\n");
-					}
-				}
-			}
+		CompiledFSM fsm = ModelCache.get(fsmFilePath, projectName);
+
+		// Build the mapping between extended messages and single char, and write the
+		// messages file
+		fsm.mapEvents(msgsMapping);
+		try (BufferedWriter msgFile = new BufferedWriter(new FileWriter(msgFilePath))) {
+			for (int e = 0; e < fsm.getNumberOfEvents(); e++)
+				msgFile.write(fsm.getEventName(e).toUpperCase() + "\n");
 		}
 
-		// Write the messages file and build the mapping between extended messages and
-		// single char
-		for (String s : msgList) {
-			msgFile.write(s.toUpperCase() + "\n");
-			while (code == ')' || code == '(' || code == '*' || code == '?' || code == '&' || code == '|' || code == '+'
-					|| code == '@' || code == '}' || code == '{' || code == '~' || code == '^' || code == '['
-					|| code == ']' || code == '-' || code == '.' || code == '#' || code == '\\' || code == '_'
-					|| code == '<' || code == '>')
-				code++;
-			msgsMapping.put(s.toUpperCase(), code);
-			code++;
-		}
-
-		logger.debug("END: CREATING THE FINAL STATE MACHINE\n");
-
-		// Close all the streams
-		msgFile.close();
-		fout.close();
-
 		// Return the built automaton
-		return createAutomatonFromFSM(fsm, msgsMapping);
+		return fsm.toAutomaton(msgsMapping);
 	}
 
 	/**
@@ -190,64 +83,22 @@ public class FSMAutomatonBuilder {
 	 */
 	protected static Automaton createAutomatonFromFSM(ArrayList<FSMState> fsm, BiMap<String, Character> msgsMapping)
 			throws IOException {
-		// Logger
-		Logger logger = Logger.getLogger(FSMAutomatonBuilder.class);
-
-		Automaton automa = new Automaton();
-		Boolean find = false;
-		HashMap<String, State> stateMap = new HashMap<>();
-		State initialState = new State();
-		initialState.setAccept(true);
-		automa.setInitialState(initialState);
-		stateMap.put(fsm.get(0).getStartStateName(), initialState);
-
-		logger.debug("----------------------------------");
-		logger.debug("CREATING THE AUTOMATON FROM THE FSM\n");
-		logger.debug("----------------------------------");
-
-		// Cycle over all the read states
-		for (FSMState s : fsm) {
-			Set<State> states = automa.getStates();
-			State toState = null;
-			State fromState = null;
-			// -------------------------------
-			// Find the start state
-			find = false;
-			for (State st : states) {
-				if (st.equals(stateMap.get(s.getStartStateName()))) {
-					fromState = st;
-					find = true;
-				}
-			}
-			// If the start state has not been found, create a new state
-			if (!find) {
-				fromState = new State();
-				fromState.setAccept(true);
-				stateMap.put(s.getStartStateName(), fromState);
-			}
-			// -------------------------------
-			// Find the end state
-			find = false;
-			for (State st : states) {
-				if (st.equals(stateMap.get(s.getFinalStateName()))) {
-					toState = st;
-					find = true;
-				}
-			}
-			// If the final state has not been found, create a new state
-			if (!find) {
-				toState = new State();
-				toState.setAccept(true);
-				stateMap.put(s.getFinalStateName(), toState);
-			}
-			// -------------------------------
-			// Create the new transition
-			fromState.addTransition(new Transition(msgsMapping.get(s.getReceivedMsg().toUpperCase()), toState));
-		}
-
-		logger.debug("END: CREATING THE AUTOMATON FROM THE FSM\n");
+		return createAutomatonFromFSM(fsm.iterator(), msgsMapping);
+	}
 
-		return automa;
+	/**
+	 * Function that builds the automaton that represents the FSM, reading its
+	 * transitions one at a time. The start state of the first transition is the
+	 * initial state, and all the messages must already be in the mapping. The
+	 * transitions are compiled into a {@link CompiledFSM}, so the automaton is
+	 * built in linear time in the number of transitions.
+	 *
+	 * @param fsm         the transitions of the fsm
+	 * @param msgsMapping the msgs mapping
+	 * @return the automaton
+	 */
+	public static Automaton createAutomatonFromFSM(Iterator<FSMState> fsm, BiMap<String, Character> msgsMapping) {
+		return CompiledFSM.from(fsm).toAutomaton(msgsMapping);
 	}
 
 }
@@ -0,0 +1,358 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Class FamilyCollector implements the collecting operation for all the
+ * products of a family at once, over a {@link FeaturedAutomaton}. Every
+ * T-combination has to be covered by a sequence valid for each product in
+ * which it is feasible. The batches are explored as in
+ * {@link OnTheFlyCollector}, but the product states also carry the set of the
+ * products still accepting the sequence, so that a single search serves all
+ * the products sharing the transitions. The cost depends on the number of
+ * distinct sets of products reached, not on the number of products.
+ */
+public class FamilyCollector {
+
+	/**
+	 * Collecting operation to create the shortest sequences of messages possible
+	 * for all the products of the family.
+	 *
+	 * @param family                 the automaton of the family
+	 * @param tuples                 the T-combinations to be covered, over the
+	 *                               alphabet of the family
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @return the test strings, each with the set of the products for which it is
+	 *         valid, in order of generation
+	 */
+	public static LinkedHashMap<String, BitSet> collecting(FeaturedAutomaton family, TupleStore tuples,
+			boolean useMonitoring, int nMaxStates, int nMaxAutomatonsPerBatch) {
+		LinkedHashMap<String, BitSet> result = new LinkedHashMap<>();
+		BitSet[] pending = feasibleProducts(family, tuples);
+		int remaining = 0;
+		for (BitSet products : pending)
+			if (!products.isEmpty())
+				remaining++;
+
+		System.out.println("Total automaton number: " + tuples.size() + " over " + family.getNumberOfProducts()
+				+ " products");
+
+		int seed = 0;
+		while (remaining > 0) {
+			while (pending[seed].isEmpty())
+				seed++;
+			ArrayList<Integer> batch = new ArrayList<>();
+			int[] witness = collectBatch(family, tuples, pending, seed, batch, nMaxStates, nMaxAutomatonsPerBatch);
+
+			if (witness == null) {
+				// The seed cannot be covered within the limits: give up on it
+				pending[seed].clear();
+				remaining--;
+				continue;
+			}
+
+			BitSet valid = family.validProducts(witness);
+			if (useMonitoring) {
+				CoverageIndex covered = new CoverageIndex(tuples);
+				covered.scan(witness, null);
+				for (int i = seed; i < pending.length; i++)
+					if (!pending[i].isEmpty() && covered.isCovered(tuples.code(i)))
+						remaining -= uncover(pending[i], valid);
+			} else {
+				for (int i : batch)
+					remaining -= uncover(pending[i], valid);
+			}
+
+			String shortestExample = OnTheFlyCollector.toString(family.getAlphabet(), witness);
+			System.out.println(shortestExample + " " + valid);
+			System.out.println("Remaining automaton to be processed: " + remaining);
+			BitSet products = result.get(shortestExample);
+			if (products == null)
+				result.put(shortestExample, valid);
+			else
+				products.or(valid);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Removes the products from the pending ones of a T-combination.
+	 *
+	 * @return 1 if the T-combination has been covered for all the products
+	 */
+	private static int uncover(BitSet pending, BitSet products) {
+		if (pending.isEmpty())
+			return 0;
+		pending.andNot(products);
+		return pending.isEmpty() ? 1 : 0;
+	}
+
+	/**
+	 * Computes, for every T-combination, the products in which it is feasible.
+	 * Products with the same enabled transitions are analyzed only once.
+	 *
+	 * @param family the automaton of the family
+	 * @param tuples the T-combinations
+	 * @return for every T-combination, the products in which it is feasible
+	 */
+	static BitSet[] feasibleProducts(FeaturedAutomaton family, TupleStore tuples) {
+		ProductClasses classes = family.getProductClasses();
+		BitSet[] feasible = new BitSet[tuples.size()];
+		for (int i = 0; i < feasible.length; i++)
+			feasible[i] = new BitSet(family.getNumberOfProducts());
+		for (int c = 0; c < classes.size(); c++) {
+			CompiledDFA system = family.project(classes.getRepresentative(c));
+			BitSet infeasible = new FeasibilityAnalyzer(system).infeasible(tuples);
+			BitSet products = classes.getProducts(c);
+			for (int i = infeasible.nextClearBit(0); i < feasible.length; i = infeasible.nextClearBit(i + 1))
+				feasible[i].or(products);
+		}
+		return feasible;
+	}
+
+	/**
+	 * Fills a batch starting from the seed, with the following T-combinations
+	 * that can be covered together with it for some of the products pending for
+	 * the seed.
+	 *
+	 * @param family                 the automaton of the family
+	 * @param tuples                 the T-combinations
+	 * @param pending                for every T-combination, the products in which
+	 *                               it still has to be covered
+	 * @param seed                   the first T-combination of the batch
+	 * @param batch                  filled with the T-combinations of the batch
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @return the shortest sequence covering the batch, null if not even the seed
+	 *         can be covered
+	 */
+	static int[] collectBatch(FeaturedAutomaton family, TupleStore tuples, BitSet[] pending, int seed,
+			List<Integer> batch, int nMaxStates, int nMaxAutomatonsPerBatch) {
+		BitSet target = pending[seed];
+		ArrayList<TupleRecognizer> recognizers = new ArrayList<>();
+		ArrayList<BitSet> required = new ArrayList<>();
+		int[] witness = null;
+		for (int index = seed; index < pending.length; index++) {
+			if (index != seed && !pending[index].intersects(target))
+				continue;
+			TupleRecognizer a = tuples.recognizer(index);
+			// The product states must be packed into a single long
+			if (!recognizers.isEmpty() && !fits(family, recognizers, a))
+				break;
+			recognizers.add(a);
+			required.add(pending[index]);
+			OnTheFlyCollector.SearchResult result = search(family, recognizers, target, required, nMaxStates);
+			if (result.witness != null) {
+				witness = result.witness;
+				batch.add(index);
+			} else {
+				recognizers.remove(recognizers.size() - 1);
+				required.remove(required.size() - 1);
+				if (index == seed)
+					break;
+			}
+			// Limit the size of the explored product
+			if (result.exploredStates >= nMaxStates || recognizers.size() >= nMaxAutomatonsPerBatch)
+				break;
+		}
+		return witness;
+	}
+
+	private static boolean fits(FeaturedAutomaton family, List<TupleRecognizer> batch, TupleRecognizer a) {
+		int bits = OnTheFlyCollector.bitsFor(family.getNumberOfStates())
+				+ OnTheFlyCollector.bitsFor(a.getNumberOfStates());
+		for (TupleRecognizer b : batch)
+			bits += OnTheFlyCollector.bitsFor(b.getNumberOfStates());
+		return bits <= 63;
+	}
+
+	/**
+	 * Explores breadth-first the product between the family and the recognizers
+	 * in the batch. A product state is made of the state of the FSM, the states of
+	 * the recognizers and the set of the products still accepting the sequence,
+	 * starting from the target ones. It is accepting when all the recognizers
+	 * accept and every T-combination is still pending for one of the products.
+	 *
+	 * @param family     the automaton of the family
+	 * @param batch      the recognizers of the batch
+	 * @param target     the products to start from
+	 * @param required   for every recognizer, the products for which it is pending
+	 * @param nMaxStates the max number of product states to be visited
+	 * @return the result of the exploration
+	 */
+	static OnTheFlyCollector.SearchResult search(FeaturedAutomaton family, List<TupleRecognizer> batch,
+			BitSet target, List<BitSet> required, int nMaxStates) {
+		int n = batch.size();
+		int k = family.getAlphabet().size();
+		int[] shift = new int[n + 1];
+		long[] mask = new long[n + 1];
+		int bits = OnTheFlyCollector.bitsFor(family.getNumberOfStates());
+		mask[0] = (1L << bits) - 1;
+		for (int m = 0; m < n; m++) {
+			int b = OnTheFlyCollector.bitsFor(batch.get(m).getNumberOfStates());
+			shift[m + 1] = bits;
+			mask[m + 1] = (1L << b) - 1;
+			bits += b;
+		}
+
+		// The sets of products are interned, and every set has its own visited states
+		HashMap<BitSet, Integer> setIds = new HashMap<>();
+		ArrayList<BitSet> sets = new ArrayList<>();
+		ArrayList<LongHashSet> visited = new ArrayList<>();
+
+		OnTheFlyCollector.SearchResult result = new OnTheFlyCollector.SearchResult();
+		long[] queue = new long[1024];
+		int[] productSet = new int[1024];
+		int[] parent = new int[1024];
+		int[] symbol = new int[1024];
+		int[] current = new int[n + 1];
+		int[] next = new int[n + 1];
+		int tail = 0;
+
+		for (int g = 0; g < family.getNumberOfInitialStates(); g++) {
+			BitSet products = (BitSet) family.getInitialProducts(g).clone();
+			products.and(target);
+			if (products.isEmpty())
+				continue;
+			current[0] = family.getInitialState(g);
+			for (int m = 0; m < n; m++)
+				current[m + 1] = batch.get(m).initialState();
+			int id = intern(products, setIds, sets, visited);
+			long key = encode(current, shift);
+			if (!visited.get(id).add(key))
+				continue;
+			if (tail == queue.length) {
+				queue = Arrays.copyOf(queue, tail * 2);
+				productSet = Arrays.copyOf(productSet, tail * 2);
+				parent = Arrays.copyOf(parent, tail * 2);
+				symbol = Arrays.copyOf(symbol, tail * 2);
+			}
+			queue[tail] = key;
+			productSet[tail] = id;
+			parent[tail] = -1;
+			tail++;
+			if (isAccept(batch, current, products, required)) {
+				result.witness = new int[0];
+				result.exploredStates = tail;
+				return result;
+			}
+		}
+
+		for (int head = 0; head < tail; head++) {
+			for (int m = 0; m <= n; m++)
+				current[m] = (int) ((queue[head] >>> shift[m]) & mask[m]);
+			BitSet products = sets.get(productSet[head]);
+			for (int c = 0; c < k; c++) {
+				int[] targets = family.getTargets(current[0], c);
+				if (targets == null)
+					continue;
+				boolean dead = false;
+				for (int m = 0; m < n && !dead; m++) {
+					next[m + 1] = batch.get(m).step(current[m + 1], c);
+					dead = next[m + 1] < 0;
+				}
+				if (dead)
+					continue;
+				BitSet[] present = family.getPresence(current[0], c);
+				for (int a = 0; a < targets.length; a++) {
+					if (!products.intersects(present[a]))
+						continue;
+					BitSet following = (BitSet) products.clone();
+					following.and(present[a]);
+					next[0] = targets[a];
+					int id = intern(following, setIds, sets, visited);
+					long key = encode(next, shift);
+					if (!visited.get(id).add(key))
+						continue;
+					if (tail == queue.length) {
+						queue = Arrays.copyOf(queue, tail * 2);
+						productSet = Arrays.copyOf(productSet, tail * 2);
+						parent = Arrays.copyOf(parent, tail * 2);
+						symbol = Arrays.copyOf(symbol, tail * 2);
+					}
+					queue[tail] = key;
+					productSet[tail] = id;
+					parent[tail] = head;
+					symbol[tail] = c;
+					tail++;
+					if (isAccept(batch, next, sets.get(id), required)) {
+						result.witness = rebuildPath(parent, symbol, tail - 1);
+						result.exploredStates = tail;
+						return result;
+					}
+					if (tail >= nMaxStates) {
+						result.exploredStates = tail;
+						return result;
+					}
+				}
+			}
+		}
+
+		result.exploredStates = tail;
+		return result;
+	}
+
+	private static int intern(BitSet products, HashMap<BitSet, Integer> setIds, ArrayList<BitSet> sets,
+			ArrayList<LongHashSet> visited) {
+		Integer id = setIds.get(products);
+		if (id == null) {
+			id = sets.size();
+			setIds.put(products, id);
+			sets.add(products);
+			visited.add(new LongHashSet(64));
+		}
+		return id;
+	}
+
+	private static long encode(int[] states, int[] shift) {
+		long key = 0;
+		for (int m = 0; m < states.length; m++)
+			key |= ((long) states[m]) << shift[m];
+		return key;
+	}
+
+	private static boolean isAccept(List<TupleRecognizer> batch, int[] states, BitSet products,
+			List<BitSet> required) {
+		for (int m = 0; m < batch.size(); m++)
+			if (!batch.get(m).isAccept(states[m + 1]) || !products.intersects(required.get(m)))
+				return false;
+		return true;
+	}
+
+	private static int[] rebuildPath(int[] parent, int[] symbol, int node) {
+		int length = 0;
+		for (int i = node; parent[i] >= 0; i = parent[i])
+			length++;
+		int[] path = new int[length];
+		for (int i = node; parent[i] >= 0; i = parent[i])
+			path[--length] = symbol[i];
+		return path;
+	}
+
+	/**
+	 * Extracts the sequences of a single product from the result of
+	 * {@link #collecting(FeaturedAutomaton, TupleStore, boolean, int, int)}.
+	 *
+	 * @param sequences the sequences with the products for which they are valid
+	 * @param product   the product
+	 * @return the sequences valid for the product
+	 */
+	public static ArrayList<String> getSequences(Map<String, BitSet> sequences, int product) {
+		ArrayList<String> result = new ArrayList<>();
+		for (Map.Entry<String, BitSet> entry : sequences.entrySet())
+			if (entry.getValue().get(product))
+				result.add(entry.getKey());
+		return result;
+	}
+}
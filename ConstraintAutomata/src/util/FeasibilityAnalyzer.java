@@ -0,0 +1,206 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Class FeasibilityAnalyzer decides which T-combinations can be covered by
+ * the FSM without intersecting its automaton with the ones of the
+ * T-combinations. The reachability relation between the states is computed
+ * only once, then the T-combination (e1, ..., et) is feasible if the sets of
+ * states
+ *
+ * <pre>
+ * S1 = post(e1, reach(initial)), Si = post(ei, reach(Si-1))
+ * </pre>
+ *
+ * are not empty and St contains a state from which an accepting state can be
+ * reached. With NOT_SECOND, the first reachability closure does not use the
+ * transitions labelled with the following events.
+ *
+ * The event level relation "event b can happen after event a" is computed too,
+ * and it is used to discard most of the infeasible T-combinations without
+ * composing the sets of states.
+ */
+public class FeasibilityAnalyzer {
+
+	private final CompiledDFA system;
+	private final int n;
+	private final int k;
+	/** reach[s] is the set of states reachable from s, s included */
+	private final BitSet[] reach;
+	/** the states from which an accepting state can be reached */
+	private final BitSet live;
+	/** afterFirst[e] is reach(post(e, reach(initial))) */
+	private final BitSet[] afterFirst;
+	/** followers[a] is the set of events that can happen after the event a */
+	private final BitSet[] followers;
+	/** the closures of the initial state avoiding some events, by set of events */
+	private final ConcurrentHashMap<Long, BitSet> restrictedClosures = new ConcurrentHashMap<>();
+
+	/**
+	 * Instantiates a new feasibility analyzer.
+	 *
+	 * @param system the compiled automaton of the FSM
+	 */
+	public FeasibilityAnalyzer(CompiledDFA system) {
+		this.system = system;
+		this.n = system.getNumberOfStates();
+		this.k = system.getAlphabet().size();
+
+		reach = new BitSet[n];
+		for (int s = 0; s < n; s++)
+			reach[s] = visit(s, null);
+
+		live = new BitSet(n);
+		for (int s = 0; s < n; s++)
+			if (system.isAccept(s))
+				live.set(s);
+		for (int s = 0; s < n; s++)
+			if (reach[s].intersects(live))
+				live.set(s);
+
+		afterFirst = new BitSet[k];
+		followers = new BitSet[k];
+		BitSet all = reach[system.initialState()];
+		for (int e = 0; e < k; e++) {
+			afterFirst[e] = closure(post(all, e));
+			followers[e] = new BitSet(k);
+			for (int s = afterFirst[e].nextSetBit(0); s >= 0; s = afterFirst[e].nextSetBit(s + 1))
+				for (int c = 0; c < k; c++)
+					if (system.step(s, c) >= 0 && live.get(system.step(s, c)))
+						followers[e].set(c);
+		}
+	}
+
+	/**
+	 * @return the compiled automaton of the FSM
+	 */
+	public CompiledDFA getSystem() {
+		return system;
+	}
+
+	/**
+	 * @param a the id of the first event
+	 * @param b the id of the second event
+	 * @return "true" if the event b can happen after the event a
+	 */
+	public boolean canFollow(int a, int b) {
+		return followers[a].get(b);
+	}
+
+	/**
+	 * Function verifying whether a T-combination can be covered by the FSM.
+	 *
+	 * @param tuple     the ids of the events of the T-combination
+	 * @param notSecond whether the following events must not precede the first
+	 *                  one
+	 * @return "true" if the T-combination can be covered, "false" otherwise
+	 */
+	public boolean isFeasible(int[] tuple, boolean notSecond) {
+		for (int i = 1; i < tuple.length; i++)
+			if (!followers[tuple[i - 1]].get(tuple[i]))
+				return false;
+		if (tuple.length == 1)
+			return post(reach[system.initialState()], tuple[0]).intersects(live);
+
+		BitSet states = notSecond ? closure(post(restrictedClosure(tuple), tuple[0])) : afterFirst[tuple[0]];
+		for (int i = 1; i < tuple.length; i++) {
+			BitSet next = post(states, tuple[i]);
+			if (i == tuple.length - 1)
+				return next.intersects(live);
+			if (next.isEmpty())
+				return false;
+			states = closure(next);
+		}
+		return true;
+	}
+
+	/**
+	 * Function finding the T-combinations of the store that cannot be covered by
+	 * the FSM. The alphabet of the store must be the one of the FSM.
+	 *
+	 * @param tuples the T-combinations
+	 * @return the indexes of the infeasible T-combinations
+	 */
+	public BitSet infeasible(TupleStore tuples) {
+		int t = tuples.getStrength();
+		BitSet result = new BitSet(tuples.size());
+		int[] tuple = new int[t];
+		for (int i = 0; i < tuples.size(); i++) {
+			for (int j = 0; j < t; j++)
+				tuple[j] = tuples.event(i, j);
+			if (!isFeasible(tuple, tuples.isNotSecond()))
+				result.set(i);
+		}
+		return result;
+	}
+
+	/**
+	 * @param tuples the T-combinations
+	 * @return the number of T-combinations of the store that can be covered by the
+	 *         FSM
+	 */
+	public int getNumberOfFeasible(TupleStore tuples) {
+		return tuples.size() - infeasible(tuples).cardinality();
+	}
+
+	/**
+	 * Visits the automaton from the given state, without using the transitions
+	 * labelled with the excluded events.
+	 */
+	private BitSet visit(int from, boolean[] excluded) {
+		BitSet visited = new BitSet(n);
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		visited.set(from);
+		queue.add(from);
+		while (!queue.isEmpty()) {
+			int s = queue.poll();
+			for (int c = 0; c < k; c++) {
+				int d = system.step(s, c);
+				if (d >= 0 && !visited.get(d) && (excluded == null || !excluded[c])) {
+					visited.set(d);
+					queue.add(d);
+				}
+			}
+		}
+		return visited;
+	}
+
+	/**
+	 * @return the states reachable from the initial one without using the
+	 *         transitions labelled with the following events of the tuple
+	 */
+	private BitSet restrictedClosure(int[] tuple) {
+		int[] following = Arrays.copyOfRange(tuple, 1, tuple.length);
+		Arrays.sort(following);
+		long key = 0;
+		for (int e : following)
+			key = key * k + e;
+		return restrictedClosures.computeIfAbsent(key, x -> {
+			boolean[] excluded = new boolean[k];
+			for (int e : following)
+				excluded[e] = true;
+			return visit(system.initialState(), excluded);
+		});
+	}
+
+	private BitSet post(BitSet states, int event) {
+		BitSet result = new BitSet(n);
+		for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+			int d = system.step(s, event);
+			if (d >= 0)
+				result.set(d);
+		}
+		return result;
+	}
+
+	private BitSet closure(BitSet states) {
+		BitSet result = new BitSet(n);
+		for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1))
+			result.or(reach[s]);
+		return result;
+	}
+}
@@ -0,0 +1,239 @@
+package util;
+
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Guard of a transition, compiled into a boolean expression over the indexes of
+ * the features. A product is represented by the set of the indexes of its
+ * selected features. The guard can be evaluated on a single product, or on all
+ * the products at once: in this case every feature is given as the column of
+ * the products selecting it, and the boolean operators become operations on
+ * the columns.
+ *
+ * The supported syntax is the one used in the SMC models: feature names,
+ * "true", "false", "!", "&&", "||" and parentheses. An empty condition is
+ * always true.
+ */
+public abstract class FeatureGuard {
+
+	/**
+	 * Evaluates the guard on a product.
+	 *
+	 * @param product the indexes of the selected features
+	 * @return the value of the guard
+	 */
+	public abstract boolean evaluate(BitSet product);
+
+	/**
+	 * Evaluates the guard on all the products at once.
+	 *
+	 * @param columns   for every feature, the indexes of the products selecting
+	 *                  it; features beyond the array are never selected
+	 * @param nProducts the number of products
+	 * @return the indexes of the products in which the guard holds
+	 */
+	public abstract BitSet evaluate(BitSet[] columns, int nProducts);
+
+	/**
+	 * Compiles a condition. Features not yet in the index are added to it, with
+	 * the next free index.
+	 *
+	 * @param condition the condition
+	 * @param features  the index of the features
+	 * @return the compiled guard
+	 * @throws IllegalArgumentException if the condition is not supported
+	 */
+	public static FeatureGuard compile(String condition, Map<String, Integer> features) {
+		Parser p = new Parser(condition == null ? "" : condition, features);
+		p.skipSpaces();
+		if (p.pos == p.text.length())
+			return new Constant(true);
+		FeatureGuard g = p.parseOr();
+		p.skipSpaces();
+		if (p.pos != p.text.length())
+			throw new IllegalArgumentException("Unexpected '" + p.text.substring(p.pos) + "' in guard: " + condition);
+		return g;
+	}
+
+	/**
+	 * Recursive descent parser of the conditions.
+	 */
+	private static class Parser {
+		private final String text;
+		private final Map<String, Integer> features;
+		private int pos;
+
+		Parser(String text, Map<String, Integer> features) {
+			this.text = text;
+			this.features = features;
+		}
+
+		FeatureGuard parseOr() {
+			FeatureGuard left = parseAnd();
+			while (accept("||"))
+				left = new Or(left, parseAnd());
+			return left;
+		}
+
+		FeatureGuard parseAnd() {
+			FeatureGuard left = parseNot();
+			while (accept("&&"))
+				left = new And(left, parseNot());
+			return left;
+		}
+
+		FeatureGuard parseNot() {
+			if (accept("!"))
+				return new Not(parseNot());
+			return parsePrimary();
+		}
+
+		FeatureGuard parsePrimary() {
+			skipSpaces();
+			if (accept("(")) {
+				FeatureGuard g = parseOr();
+				if (!accept(")"))
+					throw error("')' expected");
+				return g;
+			}
+			int start = pos;
+			while (pos < text.length() && (Character.isJavaIdentifierPart(text.charAt(pos))
+					|| (pos > start && text.charAt(pos) == '.')))
+				pos++;
+			if (start == pos || !Character.isJavaIdentifierStart(text.charAt(start)))
+				throw error("feature expected");
+			String name = text.substring(start, pos);
+			if (name.equals("true") || name.equals("false"))
+				return new Constant(Boolean.parseBoolean(name));
+			Integer index = features.get(name);
+			if (index == null) {
+				index = features.size();
+				features.put(name, index);
+			}
+			return new Feature(index);
+		}
+
+		boolean accept(String token) {
+			skipSpaces();
+			if (!text.startsWith(token, pos))
+				return false;
+			// "!" must not be the start of "!="
+			if (token.equals("!") && text.startsWith("!=", pos))
+				return false;
+			pos += token.length();
+			return true;
+		}
+
+		void skipSpaces() {
+			while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+				pos++;
+		}
+
+		IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at position " + pos + " in guard: " + text);
+		}
+	}
+
+	private static class Constant extends FeatureGuard {
+		private final boolean value;
+
+		Constant(boolean value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean evaluate(BitSet product) {
+			return value;
+		}
+
+		@Override
+		public BitSet evaluate(BitSet[] columns, int nProducts) {
+			BitSet result = new BitSet(nProducts);
+			if (value)
+				result.set(0, nProducts);
+			return result;
+		}
+	}
+
+	private static class Feature extends FeatureGuard {
+		private final int index;
+
+		Feature(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public boolean evaluate(BitSet product) {
+			return product.get(index);
+		}
+
+		@Override
+		public BitSet evaluate(BitSet[] columns, int nProducts) {
+			return index < columns.length && columns[index] != null ? (BitSet) columns[index].clone()
+					: new BitSet(nProducts);
+		}
+	}
+
+	private static class Not extends FeatureGuard {
+		private final FeatureGuard operand;
+
+		Not(FeatureGuard operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		public boolean evaluate(BitSet product) {
+			return !operand.evaluate(product);
+		}
+
+		@Override
+		public BitSet evaluate(BitSet[] columns, int nProducts) {
+			BitSet result = operand.evaluate(columns, nProducts);
+			result.flip(0, nProducts);
+			return result;
+		}
+	}
+
+	private static class And extends FeatureGuard {
+		private final FeatureGuard left, right;
+
+		And(FeatureGuard left, FeatureGuard right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public boolean evaluate(BitSet product) {
+			return left.evaluate(product) && right.evaluate(product);
+		}
+
+		@Override
+		public BitSet evaluate(BitSet[] columns, int nProducts) {
+			BitSet result = left.evaluate(columns, nProducts);
+			result.and(right.evaluate(columns, nProducts));
+			return result;
+		}
+	}
+
+	private static class Or extends FeatureGuard {
+		private final FeatureGuard left, right;
+
+		Or(FeatureGuard left, FeatureGuard right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public boolean evaluate(BitSet product) {
+			return left.evaluate(product) || right.evaluate(product);
+		}
+
+		@Override
+		public BitSet evaluate(BitSet[] columns, int nProducts) {
+			BitSet result = left.evaluate(columns, nProducts);
+			result.or(right.evaluate(columns, nProducts));
+			return result;
+		}
+	}
+}
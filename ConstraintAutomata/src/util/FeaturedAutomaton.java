@@ -0,0 +1,331 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.BiMap;
+
+import dk.brics.automaton.Automaton;
+
+/**
+ * Automaton of a whole family of products. Every transition of the FSM is kept
+ * once, labelled with its presence condition: the set of the products in which
+ * its guard holds. A state of the family is a pair (state of the FSM, set of
+ * products), and reading a symbol restricts the set to the products having the
+ * transition, so a single exploration covers all the products at once.
+ *
+ * As in the automaton of a single product, the initial state of a product is
+ * the source of its first enabled transition. If a product has many enabled
+ * transitions with the same event leaving the same state, only the first one
+ * is considered.
+ */
+public class FeaturedAutomaton {
+
+	private final CompiledFSM fsm;
+	private final BiMap<String, Character> msgsMapping;
+	private final Alphabet alphabet;
+	private final int nProducts;
+	private final BitSet[] enabled;
+	private final int[] initial;
+	// Indexed by state * k + symbol, null if no product has the transition
+	private final int[][] targets;
+	private final BitSet[][] presence;
+	// The products grouped by initial state
+	private final int[] initialStates;
+	private final BitSet[] initialProducts;
+
+	/**
+	 * Builds the automaton of the family.
+	 *
+	 * @param guards      the compiled guards of the FSM
+	 * @param products    the products, as the indexes of their selected features
+	 * @param msgsMapping the mapping of all the messages of the FSM, as built by
+	 *                    {@link CompiledFSM#mapEvents(BiMap)}
+	 * @throws IllegalArgumentException if an event of the FSM is not mapped
+	 */
+	public FeaturedAutomaton(GuardTable guards, List<BitSet> products, BiMap<String, Character> msgsMapping) {
+		this.fsm = guards.getFSM();
+		this.msgsMapping = msgsMapping;
+		this.alphabet = Alphabet.of(msgsMapping.values());
+		this.nProducts = products.size();
+		this.enabled = guards.enabledTransitions(products);
+
+		int k = alphabet.size();
+		int nTransitions = fsm.getNumberOfTransitions();
+		int[] symbols = new int[fsm.getNumberOfEvents()];
+		for (int e = 0; e < symbols.length; e++) {
+			Character c = msgsMapping.get(fsm.getEventName(e).toUpperCase());
+			symbols[e] = c == null ? -1 : alphabet.indexOf(c);
+		}
+
+		// Transpose the enabled transitions into the presence conditions
+		BitSet[] holds = new BitSet[nTransitions];
+		for (int t = 0; t < nTransitions; t++)
+			holds[t] = new BitSet(nProducts);
+		this.initial = new int[nProducts];
+		for (int p = 0; p < nProducts; p++) {
+			int first = enabled[p].nextSetBit(0);
+			initial[p] = first >= 0 ? fsm.getSource(first) : -1;
+			for (int t = first; t >= 0; t = enabled[p].nextSetBit(t + 1))
+				holds[t].set(p);
+		}
+
+		// A product takes the first of its transitions with the same source and event
+		this.targets = new int[fsm.getNumberOfStates() * k][];
+		this.presence = new BitSet[targets.length][];
+		BitSet[] taken = new BitSet[targets.length];
+		for (int t = 0; t < nTransitions; t++) {
+			if (symbols[fsm.getEvent(t)] < 0)
+				throw new IllegalArgumentException("Message not mapped: " + fsm.getEventName(fsm.getEvent(t)));
+			BitSet present = (BitSet) holds[t].clone();
+			if (present.isEmpty())
+				continue;
+			int i = fsm.getSource(t) * k + symbols[fsm.getEvent(t)];
+			if (taken[i] == null) {
+				taken[i] = new BitSet(nProducts);
+				targets[i] = new int[0];
+				presence[i] = new BitSet[0];
+			}
+			present.andNot(taken[i]);
+			if (present.isEmpty())
+				continue;
+			taken[i].or(present);
+			int n = targets[i].length;
+			targets[i] = Arrays.copyOf(targets[i], n + 1);
+			presence[i] = Arrays.copyOf(presence[i], n + 1);
+			targets[i][n] = fsm.getTarget(t);
+			presence[i][n] = present;
+		}
+
+		Map<Integer, BitSet> groups = new LinkedHashMap<>();
+		for (int p = 0; p < nProducts; p++)
+			if (initial[p] >= 0)
+				groups.computeIfAbsent(initial[p], s -> new BitSet(nProducts)).set(p);
+		this.initialStates = new int[groups.size()];
+		this.initialProducts = new BitSet[groups.size()];
+		int g = 0;
+		for (Map.Entry<Integer, BitSet> entry : groups.entrySet()) {
+			initialStates[g] = entry.getKey();
+			initialProducts[g++] = entry.getValue();
+		}
+	}
+
+	/**
+	 * @return the compiled FSM
+	 */
+	public CompiledFSM getFSM() {
+		return fsm;
+	}
+
+	/**
+	 * @return the mapping of all the messages in chars
+	 */
+	public BiMap<String, Character> getMsgsMapping() {
+		return msgsMapping;
+	}
+
+	/**
+	 * @return the alphabet of all the messages
+	 */
+	public Alphabet getAlphabet() {
+		return alphabet;
+	}
+
+	/**
+	 * @return the number of states of the FSM
+	 */
+	public int getNumberOfStates() {
+		return fsm.getNumberOfStates();
+	}
+
+	/**
+	 * @return the number of products
+	 */
+	public int getNumberOfProducts() {
+		return nProducts;
+	}
+
+	/**
+	 * @param product the product
+	 * @return the transitions whose guard holds in the product
+	 */
+	public BitSet getEnabledTransitions(int product) {
+		return (BitSet) enabled[product].clone();
+	}
+
+	/**
+	 * @return the partition of the products by enabled transitions
+	 */
+	public ProductClasses getProductClasses() {
+		return new ProductClasses(enabled);
+	}
+
+	/**
+	 * @return the number of distinct initial states
+	 */
+	int getNumberOfInitialStates() {
+		return initialStates.length;
+	}
+
+	/**
+	 * @param i the index of the initial state, in [0, getNumberOfInitialStates())
+	 * @return the state of the FSM
+	 */
+	int getInitialState(int i) {
+		return initialStates[i];
+	}
+
+	/**
+	 * @param i the index of the initial state, in [0, getNumberOfInitialStates())
+	 * @return the products starting from it
+	 */
+	BitSet getInitialProducts(int i) {
+		return initialProducts[i];
+	}
+
+	/**
+	 * @return the targets of the transitions leaving the state with the symbol,
+	 *         null if there are none
+	 */
+	int[] getTargets(int state, int symbol) {
+		return targets[state * alphabet.size() + symbol];
+	}
+
+	/**
+	 * @return the products having the transitions leaving the state with the
+	 *         symbol, in the same order as {@link #getTargets(int, int)}
+	 */
+	BitSet[] getPresence(int state, int symbol) {
+		return presence[state * alphabet.size() + symbol];
+	}
+
+	/**
+	 * Computes the products for which the given sequence is valid.
+	 *
+	 * @param word the sequence of symbol ids
+	 * @return the products accepting the sequence
+	 */
+	public BitSet validProducts(int[] word) {
+		BitSet result = new BitSet(nProducts);
+		if (word.length == 0) {
+			result.set(0, nProducts);
+			return result;
+		}
+		for (int g = 0; g < initialStates.length; g++)
+			run(initialStates[g], (BitSet) initialProducts[g].clone(), word, 0, result);
+		return result;
+	}
+
+	private void run(int state, BitSet products, int[] word, int i, BitSet result) {
+		// The sets of the products following the different transitions are disjoint
+		while (i < word.length) {
+			if (word[i] < 0)
+				return;
+			int[] next = getTargets(state, word[i]);
+			if (next == null)
+				return;
+			BitSet[] present = getPresence(state, word[i]);
+			for (int a = 1; a < next.length; a++) {
+				if (products.intersects(present[a])) {
+					BitSet branch = (BitSet) products.clone();
+					branch.and(present[a]);
+					run(next[a], branch, word, i + 1, result);
+				}
+			}
+			products.and(present[0]);
+			if (products.isEmpty())
+				return;
+			state = next[0];
+			i++;
+		}
+		result.or(products);
+	}
+
+	/**
+	 * Computes the products for which the given sequence is valid.
+	 *
+	 * @param sequence the sequence of chars
+	 * @return the products accepting the sequence
+	 */
+	public BitSet validProducts(String sequence) {
+		int[] word = new int[sequence.length()];
+		for (int i = 0; i < word.length; i++)
+			word[i] = alphabet.indexOf(sequence.charAt(i));
+		return validProducts(word);
+	}
+
+	/**
+	 * Compiles the automaton of a single product over the alphabet of the family.
+	 * The states are numbered in breadth-first order from the initial one.
+	 *
+	 * @param product the product
+	 * @return the compiled automaton
+	 */
+	public CompiledDFA project(int product) {
+		int k = alphabet.size();
+		if (initial[product] < 0)
+			return new CompiledDFA(alphabet, 1, fill(new int[k]), new boolean[] { true });
+
+		int[] ids = fill(new int[fsm.getNumberOfStates()]);
+		ArrayList<Integer> states = new ArrayList<>();
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		ids[initial[product]] = 0;
+		states.add(initial[product]);
+		queue.add(initial[product]);
+		int[] table = fill(new int[fsm.getNumberOfStates() * k]);
+		while (!queue.isEmpty()) {
+			int s = queue.poll();
+			for (int c = 0; c < k; c++) {
+				int[] next = getTargets(s, c);
+				if (next == null)
+					continue;
+				BitSet[] present = getPresence(s, c);
+				for (int a = 0; a < next.length; a++) {
+					if (!present[a].get(product))
+						continue;
+					if (ids[next[a]] < 0) {
+						ids[next[a]] = states.size();
+						states.add(next[a]);
+						queue.add(next[a]);
+					}
+					table[ids[s] * k + c] = ids[next[a]];
+				}
+			}
+		}
+		boolean[] accept = new boolean[states.size()];
+		Arrays.fill(accept, true);
+		return new CompiledDFA(alphabet, states.size(), Arrays.copyOf(table, states.size() * k), accept);
+	}
+
+	private static int[] fill(int[] array) {
+		Arrays.fill(array, -1);
+		return array;
+	}
+
+	/**
+	 * Builds the mapping of the messages of a single product, restricted to the
+	 * ones of its enabled transitions, with the same chars as the family.
+	 *
+	 * @param product the product
+	 * @return the mapping of the messages in chars
+	 */
+	public BiMap<String, Character> getMsgsMapping(int product) {
+		return fsm.restrictMapping(msgsMapping, enabled[product]);
+	}
+
+	/**
+	 * Builds the automaton of a single product, labelled with the chars of the
+	 * family.
+	 *
+	 * @param product the product
+	 * @return the automaton
+	 */
+	public Automaton toAutomaton(int product) {
+		return fsm.toAutomaton(msgsMapping, enabled[product]);
+	}
+}
@@ -0,0 +1,134 @@
+package util;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.BiFunction;
+
+/**
+ * The compiled guards of a FSM. Every distinct guard is compiled only once, and
+ * the products are represented as the sets of the indexes of their selected
+ * features. The enabled transitions of many products are computed in a single
+ * pass, evaluating every guard on all the products at once. As with MVEL, a
+ * product must assign every feature named in the guards: a missing one is
+ * reported instead of being taken as unselected, so that a misspelled feature
+ * does not silently disable its transitions.
+ */
+public class GuardTable {
+
+	private final CompiledFSM fsm;
+	private final Map<String, Integer> features = new LinkedHashMap<>();
+	private final FeatureGuard[] guards;
+	/** the features named in the guards have the first indexes */
+	private final int nGuardFeatures;
+
+	/**
+	 * Compiles the guards of the FSM.
+	 *
+	 * @param fsm      the compiled FSM
+	 * @param fallback the compiler of the guards not supported by
+	 *                 {@link FeatureGuard}, given the condition and the index of
+	 *                 the features; it can be null
+	 * @throws IllegalArgumentException if a guard is not supported and there is
+	 *                                  no fallback
+	 */
+	public GuardTable(CompiledFSM fsm, BiFunction<String, Map<String, Integer>, FeatureGuard> fallback) {
+		this.fsm = fsm;
+		this.guards = new FeatureGuard[fsm.getNumberOfGuards()];
+		for (int g = 0; g < guards.length; g++) {
+			String condition = fsm.getGuardCondition(g);
+			try {
+				guards[g] = FeatureGuard.compile(condition, features);
+			} catch (IllegalArgumentException e) {
+				if (fallback == null)
+					throw e;
+				guards[g] = fallback.apply(condition, features);
+			}
+		}
+		this.nGuardFeatures = features.size();
+	}
+
+	/**
+	 * @return the compiled FSM
+	 */
+	public CompiledFSM getFSM() {
+		return fsm;
+	}
+
+	/**
+	 * Converts an assignment of the features into a product. Features not
+	 * appearing in any guard are added to the index as well.
+	 *
+	 * @param assignments the value, "true" or "false", of the features
+	 * @return the indexes of the selected features
+	 * @throws IllegalArgumentException if a feature named in the guards is not
+	 *                                  assigned
+	 */
+	public synchronized BitSet toProduct(Map<String, String> assignments) {
+		BitSet product = new BitSet(features.size());
+		for (Entry<String, String> entry : assignments.entrySet()) {
+			Integer index = features.get(entry.getKey());
+			if (index == null) {
+				index = features.size();
+				features.put(entry.getKey(), index);
+			}
+			if (Boolean.valueOf(entry.getValue()))
+				product.set(index);
+		}
+		for (Entry<String, Integer> entry : features.entrySet())
+			if (entry.getValue() < nGuardFeatures && !assignments.containsKey(entry.getKey()))
+				throw new IllegalArgumentException("Unknown feature in the guards: " + entry.getKey());
+		return product;
+	}
+
+	/**
+	 * @param product the indexes of the selected features
+	 * @return the transitions whose guard holds in the product
+	 */
+	public synchronized BitSet enabledTransitions(BitSet product) {
+		boolean[] holds = new boolean[guards.length];
+		for (int g = 0; g < guards.length; g++)
+			holds[g] = guards[g].evaluate(product);
+		BitSet enabled = new BitSet(fsm.getNumberOfTransitions());
+		for (int t = 0; t < fsm.getNumberOfTransitions(); t++)
+			if (holds[fsm.getGuard(t)])
+				enabled.set(t);
+		return enabled;
+	}
+
+	/**
+	 * Computes the enabled transitions of all the products, evaluating every guard
+	 * once on the columns of the features.
+	 *
+	 * @param products the products
+	 * @return for every product, the transitions whose guard holds in it
+	 */
+	public synchronized BitSet[] enabledTransitions(List<BitSet> products) {
+		int n = products.size();
+		BitSet[] columns = new BitSet[features.size()];
+		for (int p = 0; p < n; p++) {
+			BitSet product = products.get(p);
+			for (int f = product.nextSetBit(0); f >= 0 && f < columns.length; f = product.nextSetBit(f + 1)) {
+				if (columns[f] == null)
+					columns[f] = new BitSet(n);
+				columns[f].set(p);
+			}
+		}
+
+		BitSet[] holds = new BitSet[guards.length];
+		for (int g = 0; g < guards.length; g++)
+			holds[g] = guards[g].evaluate(columns, n);
+
+		BitSet[] enabled = new BitSet[n];
+		for (int p = 0; p < n; p++)
+			enabled[p] = new BitSet(fsm.getNumberOfTransitions());
+		for (int t = 0; t < fsm.getNumberOfTransitions(); t++) {
+			BitSet holding = holds[fsm.getGuard(t)];
+			for (int p = holding.nextSetBit(0); p >= 0; p = holding.nextSetBit(p + 1))
+				enabled[p].set(t);
+		}
+		return enabled;
+	}
+}
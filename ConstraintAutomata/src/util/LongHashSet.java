@@ -0,0 +1,95 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Set of longs based on open addressing, used to store the visited states of
+ * the explored products without boxing them.
+ */
+class LongHashSet {
+
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	private long[] keys;
+	private int size;
+	private boolean containsEmpty;
+
+	LongHashSet(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Adds a key to the set.
+	 *
+	 * @param key the key
+	 * @return "true" if the key was not in the set
+	 */
+	boolean add(long key) {
+		if (key == EMPTY) {
+			if (containsEmpty)
+				return false;
+			containsEmpty = true;
+			size++;
+			return true;
+		}
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (keys[i] != EMPTY) {
+			if (keys[i] == key)
+				return false;
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		if (++size * 2 > keys.length)
+			rehash();
+		return true;
+	}
+
+	/**
+	 * @param key the key
+	 * @return "true" if the key is in the set
+	 */
+	boolean contains(long key) {
+		if (key == EMPTY)
+			return containsEmpty;
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (keys[i] != EMPTY) {
+			if (keys[i] == key)
+				return true;
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private void rehash() {
+		long[] old = keys;
+		keys = new long[old.length * 2];
+		Arrays.fill(keys, EMPTY);
+		int mask = keys.length - 1;
+		for (long key : old) {
+			if (key != EMPTY) {
+				int i = hash(key) & mask;
+				while (keys[i] != EMPTY)
+					i = (i + 1) & mask;
+				keys[i] = key;
+			}
+		}
+	}
+
+	private static int hash(long key) {
+		// Finalizer of MurmurHash3, so that all the bits of the key are mixed
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
@@ -0,0 +1,140 @@
+package util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import config.ConfigurationData;
+
+/**
+ * Cache of the compiled FSMs, keyed by the SHA-256 hash of the content of the
+ * SMC files and of the project name, which the parser uses, so that every
+ * model is parsed only once per process. If
+ * {@link ConfigurationData#MODEL_CACHE_ON_DISK} is set, the compiled FSM is also
+ * saved in a binary file named after the key in
+ * {@link ConfigurationData#MODEL_CACHE_DIR}, which is read instead of parsing
+ * the model again. The disk cache is off by default: the binary files are not
+ * written next to the models, so that the data directories only hold the
+ * sources, and without it every new process parses the model once.
+ */
+public class ModelCache {
+
+	private static final int MAGIC = 0x46534d43; // "FSMC"
+	private static final int VERSION = 1;
+	private static final String SUFFIX = ".bin";
+
+	private static final ConcurrentHashMap<String, CompiledFSM> CACHE = new ConcurrentHashMap<>();
+
+	private ModelCache() {
+	}
+
+	/**
+	 * Returns the compiled FSM of the given SMC file, parsing it only if it is
+	 * neither in memory nor on disk.
+	 *
+	 * @param fsmFilePath the fsm file path
+	 * @param projectName the project name
+	 * @return the compiled FSM
+	 * @throws IOException               Signals that an I/O exception has occurred.
+	 * @throws IllegalAccessException    the illegal access exception
+	 * @throws InvocationTargetException the invocation target exception
+	 */
+	public static CompiledFSM get(String fsmFilePath, String projectName)
+			throws IOException, IllegalAccessException, InvocationTargetException {
+		byte[] hash = hash(Files.readAllBytes(new File(fsmFilePath).toPath()), projectName);
+		String key = toHex(hash);
+		CompiledFSM fsm = CACHE.get(key);
+		if (fsm != null)
+			return fsm;
+
+		File binFile = new File(ConfigurationData.MODEL_CACHE_DIR, key + SUFFIX);
+		if (ConfigurationData.MODEL_CACHE_ON_DISK)
+			fsm = load(binFile, hash);
+		if (fsm == null) {
+			fsm = CompiledFSM.parse(fsmFilePath, projectName);
+			if (ConfigurationData.MODEL_CACHE_ON_DISK)
+				save(binFile, hash, fsm);
+		}
+		CompiledFSM previous = CACHE.putIfAbsent(key, fsm);
+		return previous != null ? previous : fsm;
+	}
+
+	/**
+	 * Removes all the compiled FSMs kept in memory.
+	 */
+	public static void clear() {
+		CACHE.clear();
+	}
+
+	private static CompiledFSM load(File binFile, byte[] hash) {
+		if (!binFile.isFile())
+			return null;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binFile)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return null;
+			byte[] stored = new byte[hash.length];
+			in.readFully(stored);
+			if (!Arrays.equals(stored, hash))
+				return null;
+			return CompiledFSM.read(in);
+		} catch (IOException e) {
+			Logger.getLogger(ModelCache.class).warn("Ignoring the cached model " + binFile + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static void save(File binFile, byte[] hash, CompiledFSM fsm) {
+		// Write a temporary file first, so that a concurrent reader never sees a
+		// partial model
+		File tmp = new File(binFile.getPath() + ".tmp" + Thread.currentThread().getId());
+		try {
+			Files.createDirectories(binFile.getAbsoluteFile().getParentFile().toPath());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.write(hash);
+				fsm.write(out);
+			}
+			Files.move(tmp.toPath(), binFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			Logger.getLogger(ModelCache.class).warn("Cannot cache the model in " + binFile + ": " + e.getMessage());
+			tmp.delete();
+		}
+	}
+
+	private static byte[] hash(byte[] content, String projectName) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(content);
+			// The separator cannot appear in the UTF-8 encoding of the name
+			digest.update((byte) 0xff);
+			digest.update(String.valueOf(projectName).getBytes(StandardCharsets.UTF_8));
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+}
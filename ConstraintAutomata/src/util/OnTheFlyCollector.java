@@ -0,0 +1,358 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import dk.brics.automaton.Automaton;
+
+/**
+ * The Class OnTheFlyCollector implements the collecting operation without
+ * building the intersection automata. The product between the FSM and the
+ * recognizers of a batch of T-combinations is explored lazily, breadth-first,
+ * and the exploration stops at the first accepting product state, which gives
+ * the shortest sequence covering the whole batch.
+ */
+public class OnTheFlyCollector {
+
+	/**
+	 * Result of the exploration of a product
+	 */
+	static class SearchResult {
+		/** the shortest accepted sequence, null if none has been found */
+		int[] witness;
+		/** the number of product states that have been visited */
+		int exploredStates;
+	}
+
+	/**
+	 * Collecting operation to create the shortest sequences of messages possible.
+	 * It produces the same kind of sequences as
+	 * {@link Utils#collecting(Automaton, ArrayList, Boolean, int, int)}.
+	 *
+	 * @param fullSystemAutomaton              : automaton representing the FSM -
+	 *                                         Full System
+	 * @param automatonListForTWiseRecognition the automaton list for T wise
+	 *                                         recognition
+	 * @param useMonitoring                    the use monitoring
+	 * @param nMaxStates                       the max number of product states
+	 *                                         visited for a single batch
+	 * @param nMaxAutomatonsPerBatch           the n max automatons per batch
+	 * @return the list of the test strings
+	 */
+	public static ArrayList<String> collecting(Automaton fullSystemAutomaton,
+			ArrayList<Automaton> automatonListForTWiseRecognition, Boolean useMonitoring, int nMaxStates,
+			int nMaxAutomatonsPerBatch) {
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton);
+		return collecting(system, RecognizerList.of(automatonListForTWiseRecognition, system.getAlphabet()),
+				useMonitoring, nMaxStates, nMaxAutomatonsPerBatch);
+	}
+
+	/**
+	 * Collecting operation working on the packed T-combinations.
+	 *
+	 * @param fullSystemAutomaton    : automaton representing the FSM - Full System
+	 * @param tuples                 the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @return the list of the test strings
+	 */
+	public static ArrayList<String> collecting(Automaton fullSystemAutomaton, TupleStore tuples,
+			Boolean useMonitoring, int nMaxStates, int nMaxAutomatonsPerBatch) {
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton, tuples.getAlphabet());
+		return collecting(system, tuples, useMonitoring, nMaxStates, nMaxAutomatonsPerBatch);
+	}
+
+	/**
+	 * Collecting operation working on the compiled FSM and on the recognizers of
+	 * the T-combinations. The given set is not modified.
+	 *
+	 * @param system                 the compiled automaton of the FSM
+	 * @param tuples                 the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @return the list of the test strings
+	 */
+	public static ArrayList<String> collecting(CompiledDFA system, TupleSet tuples, boolean useMonitoring,
+			int nMaxStates, int nMaxAutomatonsPerBatch) {
+		return collecting(system, tuples, useMonitoring, nMaxStates, nMaxAutomatonsPerBatch, null, null);
+	}
+
+	/**
+	 * Collecting operation publishing every sequence as soon as its batch is
+	 * closed. The token is checked between two batches: once it is cancelled, or
+	 * its deadline has passed, the sequences found so far are returned. The given
+	 * set is not modified.
+	 *
+	 * @param system                 the compiled automaton of the FSM
+	 * @param tuples                 the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @param listener               the listener of the sequences, may be null
+	 * @param token                  the token stopping the collecting, may be
+	 *                               null
+	 * @return the list of the test strings, partial if the token has been
+	 *         cancelled
+	 */
+	public static ArrayList<String> collecting(CompiledDFA system, TupleSet tuples, boolean useMonitoring,
+			int nMaxStates, int nMaxAutomatonsPerBatch, CollectingListener listener, CancellationToken token) {
+		long start = System.currentTimeMillis();
+		ArrayList<String> stringList = new ArrayList<String>();
+		TupleSet temp = tuples.copy();
+		int total = temp.size();
+		long totalLength = 0;
+
+		System.out.println("Total automaton number: " + temp.size());
+
+		// Removing unreachable tuples can lead to a shorter evaluation, and it is
+		// cheaper than exploring the whole product with the batches
+		temp.removeAll(temp.infeasible(system));
+		int infeasible = total - temp.size();
+
+		while (temp.size() > 0) {
+			if (token != null && token.isCancelled()) {
+				System.out.println("Collecting stopped, " + temp.size() + " automata not processed");
+				break;
+			}
+			int oldDim = temp.size();
+			int[] witness = collectBatch(system, temp, nMaxStates, nMaxAutomatonsPerBatch);
+
+			// Apply the monitoring operation
+			if (useMonitoring)
+				temp.removeAccepted(witness);
+
+			String shortestExample = toString(system.getAlphabet(), witness);
+			System.out.println(shortestExample);
+			System.out.println("Remaining automaton to be processed: " + temp.size());
+			if (!shortestExample.equals("")) {
+				stringList.add(shortestExample);
+				totalLength += witness.length;
+				if (listener != null)
+					listener.sequenceFound(shortestExample, new CollectingProgress(total, infeasible, temp.size(),
+							stringList.size(), totalLength, System.currentTimeMillis() - start));
+			}
+			if (temp.size() == oldDim)
+				break;
+		}
+
+		return stringList;
+	}
+
+	/**
+	 * Fills a batch with the first T-combinations of the set that can be covered
+	 * together, and removes them from the set. The limit of visited states stops
+	 * the batch from growing, but never the search for its first T-combination,
+	 * which is always covered if it is feasible.
+	 *
+	 * @param system                 the compiled automaton of the FSM
+	 * @param temp                   the T-combinations still to be covered
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @return the shortest sequence covering the batch, empty if the batch is
+	 *         empty
+	 */
+	static int[] collectBatch(CompiledDFA system, TupleSet temp, int nMaxStates, int nMaxAutomatonsPerBatch) {
+		ArrayList<TupleRecognizer> batch = new ArrayList<>();
+		BitSet processed = new BitSet(temp.size());
+		int[] witness = new int[0];
+		for (int index = 0; index < temp.size(); index++) {
+			TupleRecognizer a = temp.recognizer(index);
+			// The product states must be packed into a single long
+			if (!batch.isEmpty() && !fits(system, batch, a))
+				break;
+			boolean first = batch.isEmpty();
+			batch.add(a);
+			SearchResult result = search(system, batch, first ? Integer.MAX_VALUE : nMaxStates);
+			if (result.witness != null) {
+				witness = result.witness;
+				processed.set(index);
+			} else {
+				batch.remove(batch.size() - 1);
+			}
+			// Limit the size of the explored product
+			if (result.exploredStates >= nMaxStates || batch.size() >= nMaxAutomatonsPerBatch)
+				break;
+		}
+		temp.removeAll(processed);
+		return witness;
+	}
+
+	/**
+	 * Function verifying whether the T-combination recognized by the given
+	 * recognizer can be covered by the FSM.
+	 *
+	 * @param system the compiled automaton of the FSM
+	 * @param a      the recognizer of the T-combination
+	 * @return "true" if the T-combination can be covered, "false" otherwise
+	 */
+	public static boolean isFeasible(CompiledDFA system, TupleRecognizer a) {
+		ArrayList<TupleRecognizer> single = new ArrayList<>();
+		single.add(a);
+		return search(system, single, Integer.MAX_VALUE).witness != null;
+	}
+
+	/**
+	 * Runs the recognizer on a sequence of symbol ids.
+	 *
+	 * @param a    the recognizer
+	 * @param word the sequence of symbol ids
+	 * @return "true" if the sequence is accepted
+	 */
+	static boolean accepts(TupleRecognizer a, int[] word) {
+		int state = a.initialState();
+		for (int i = 0; i < word.length && state >= 0; i++)
+			state = a.step(state, word[i]);
+		return state >= 0 && a.isAccept(state);
+	}
+
+	/**
+	 * Converts a sequence of symbol ids into the corresponding string.
+	 *
+	 * @param alphabet the alphabet
+	 * @param word     the sequence of symbol ids
+	 * @return the string
+	 */
+	static String toString(Alphabet alphabet, int[] word) {
+		char[] chars = new char[word.length];
+		for (int i = 0; i < word.length; i++)
+			chars[i] = alphabet.symbol(word[i]);
+		return new String(chars);
+	}
+
+	/**
+	 * @param n the number of values
+	 * @return the number of bits needed to store values in [0, n)
+	 */
+	static int bitsFor(int n) {
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(n - 1, 1)));
+	}
+
+	/**
+	 * Checks whether the states of the product obtained by adding the given
+	 * recognizer to the batch can still be packed into a long.
+	 */
+	static boolean fits(CompiledDFA system, List<TupleRecognizer> batch, TupleRecognizer a) {
+		int bits = bitsFor(system.getNumberOfStates()) + bitsFor(a.getNumberOfStates());
+		for (TupleRecognizer b : batch)
+			bits += bitsFor(b.getNumberOfStates());
+		return bits <= 63;
+	}
+
+	/**
+	 * Explores breadth-first the product between the FSM and the recognizers in
+	 * the batch, without building it.
+	 *
+	 * @param system     the compiled automaton of the FSM
+	 * @param batch      the recognizers of the batch
+	 * @param nMaxStates the max number of product states to be visited
+	 * @return the result of the exploration
+	 */
+	static SearchResult search(CompiledDFA system, List<TupleRecognizer> batch, int nMaxStates) {
+		int n = batch.size();
+		int k = system.getAlphabet().size();
+		int[] shift = new int[n + 1];
+		long[] mask = new long[n + 1];
+		int bits = bitsFor(system.getNumberOfStates());
+		mask[0] = (1L << bits) - 1;
+		for (int m = 0; m < n; m++) {
+			int b = bitsFor(batch.get(m).getNumberOfStates());
+			shift[m + 1] = bits;
+			mask[m + 1] = (1L << b) - 1;
+			bits += b;
+		}
+
+		SearchResult result = new SearchResult();
+		LongHashSet visited = new LongHashSet(1024);
+		long[] queue = new long[1024];
+		int[] parent = new int[1024];
+		int[] symbol = new int[1024];
+		int[] current = new int[n + 1];
+		int[] next = new int[n + 1];
+
+		// Initial product state
+		current[0] = system.initialState();
+		for (int m = 0; m < n; m++)
+			current[m + 1] = batch.get(m).initialState();
+		queue[0] = encode(current, shift);
+		visited.add(queue[0]);
+		int tail = 1;
+		if (isAccept(system, batch, current)) {
+			result.witness = new int[0];
+			result.exploredStates = 1;
+			return result;
+		}
+
+		for (int head = 0; head < tail; head++) {
+			for (int m = 0; m <= n; m++)
+				current[m] = (int) ((queue[head] >>> shift[m]) & mask[m]);
+			for (int c = 0; c < k; c++) {
+				next[0] = system.step(current[0], c);
+				boolean dead = next[0] < 0;
+				for (int m = 0; m < n && !dead; m++) {
+					next[m + 1] = batch.get(m).step(current[m + 1], c);
+					dead = next[m + 1] < 0;
+				}
+				if (dead)
+					continue;
+				long key = encode(next, shift);
+				if (!visited.add(key))
+					continue;
+				if (tail == queue.length) {
+					queue = Arrays.copyOf(queue, tail * 2);
+					parent = Arrays.copyOf(parent, tail * 2);
+					symbol = Arrays.copyOf(symbol, tail * 2);
+				}
+				queue[tail] = key;
+				parent[tail] = head;
+				symbol[tail] = c;
+				tail++;
+				if (isAccept(system, batch, next)) {
+					result.witness = rebuildPath(parent, symbol, tail - 1);
+					result.exploredStates = tail;
+					return result;
+				}
+				if (tail >= nMaxStates) {
+					result.exploredStates = tail;
+					return result;
+				}
+			}
+		}
+
+		result.exploredStates = tail;
+		return result;
+	}
+
+	private static long encode(int[] states, int[] shift) {
+		long key = 0;
+		for (int m = 0; m < states.length; m++)
+			key |= ((long) states[m]) << shift[m];
+		return key;
+	}
+
+	private static boolean isAccept(CompiledDFA system, List<TupleRecognizer> batch, int[] states) {
+		if (!system.isAccept(states[0]))
+			return false;
+		for (int m = 0; m < batch.size(); m++)
+			if (!batch.get(m).isAccept(states[m + 1]))
+				return false;
+		return true;
+	}
+
+	private static int[] rebuildPath(int[] parent, int[] symbol, int node) {
+		int length = 0;
+		for (int i = node; i != 0; i = parent[i])
+			length++;
+		int[] path = new int[length];
+		for (int i = node; i != 0; i = parent[i])
+			path[--length] = symbol[i];
+		return path;
+	}
+}
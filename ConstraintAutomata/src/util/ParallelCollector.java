@@ -0,0 +1,326 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import dk.brics.automaton.Automaton;
+
+/**
+ * The Class ParallelCollector implements the collecting operation with several
+ * workers sharing the T-combinations still to be covered. Two lock-free bitmaps
+ * indexed by the codes of the T-combinations (see {@link CoverageIndex}) are
+ * shared: a worker claims a T-combination before trying to add it to its
+ * batch, and each generated sequence immediately marks as done everything it
+ * covers, so that the other workers skip it. Each worker starts from a
+ * different position of the randomly sorted T-combinations, so that the
+ * workers rarely compete for the same ones. A listener receives every sequence
+ * as soon as a worker has generated it, in the order the workers emit them.
+ */
+public class ParallelCollector {
+
+	private final CompiledDFA system;
+	private final TupleStore tuples;
+	private final int[] codes;
+	private final boolean useMonitoring;
+	private final int nMaxStates;
+	private final int nMaxAutomatonsPerBatch;
+	/** the T-combinations covered, or discarded because too expensive */
+	private final AtomicLongArray done;
+	/** the T-combinations in the batch of some worker */
+	private final AtomicLongArray claimed;
+	/** the T-combinations to be covered */
+	private final long[] pending;
+	private final AtomicInteger remaining;
+	/** the number of T-combinations currently claimed */
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final CollectingListener listener;
+	private final CancellationToken token;
+	/** the number of T-combinations given, infeasible ones included */
+	private final int total;
+	private final long start;
+	/** the sequences published to the listener, guarded by the listener */
+	private int published;
+	private long publishedLength;
+
+	private ParallelCollector(CompiledDFA system, TupleStore tuples, boolean useMonitoring, int nMaxStates,
+			int nMaxAutomatonsPerBatch, CollectingListener listener, CancellationToken token, int total, long start) {
+		this.system = system;
+		this.listener = listener;
+		this.token = token;
+		this.total = total;
+		this.start = start;
+		this.tuples = tuples;
+		this.useMonitoring = useMonitoring;
+		this.nMaxStates = nMaxStates;
+		this.nMaxAutomatonsPerBatch = nMaxAutomatonsPerBatch;
+		long n = 1;
+		for (int i = 0; i < tuples.getStrength(); i++)
+			n *= tuples.getAlphabet().size();
+		if (n > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many " + tuples.getStrength() + "-combinations: " + n);
+		this.done = new AtomicLongArray((int) ((n + 63) / 64));
+		this.claimed = new AtomicLongArray((int) ((n + 63) / 64));
+		this.pending = new long[(int) ((n + 63) / 64)];
+		this.codes = new int[tuples.size()];
+		for (int i = 0; i < codes.length; i++) {
+			codes[i] = tuples.code(i);
+			pending[codes[i] >>> 6] |= 1L << codes[i];
+		}
+		this.remaining = new AtomicInteger(tuples.size());
+	}
+
+	/**
+	 * Collecting operation working on the packed T-combinations with the given
+	 * number of workers.
+	 *
+	 * @param fullSystemAutomaton    : automaton representing the FSM - Full System
+	 * @param tuples                 the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @param nThreads               the number of workers
+	 * @return the list of the test strings
+	 */
+	public static ArrayList<String> collecting(Automaton fullSystemAutomaton, TupleStore tuples,
+			Boolean useMonitoring, int nMaxStates, int nMaxAutomatonsPerBatch, int nThreads) {
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton, tuples.getAlphabet());
+		return collecting(system, tuples, useMonitoring, nMaxStates, nMaxAutomatonsPerBatch, nThreads);
+	}
+
+	/**
+	 * Collecting operation working on the compiled FSM with the given number of
+	 * workers. The given store is not modified.
+	 *
+	 * @param system                 the compiled automaton of the FSM
+	 * @param tuples                 the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @param nThreads               the number of workers
+	 * @return the list of the test strings
+	 */
+	public static ArrayList<String> collecting(CompiledDFA system, TupleStore tuples, boolean useMonitoring,
+			int nMaxStates, int nMaxAutomatonsPerBatch, int nThreads) {
+		return collecting(system, tuples, useMonitoring, nMaxStates, nMaxAutomatonsPerBatch, nThreads, null, null);
+	}
+
+	/**
+	 * Collecting operation working on the compiled FSM with the given number of
+	 * workers, publishing every sequence as soon as a worker has generated it.
+	 * The token is checked by every worker between two batches: once it is
+	 * cancelled, or its deadline has passed, the sequences found so far are
+	 * returned. The given store is not modified.
+	 *
+	 * @param system                 the compiled automaton of the FSM
+	 * @param tuples                 the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @param nThreads               the number of workers
+	 * @param listener               the listener of the sequences, may be null;
+	 *                               it is never called by two workers at once
+	 * @param token                  the token stopping the collecting, may be
+	 *                               null
+	 * @return the list of the test strings, partial if the token has been
+	 *         cancelled
+	 */
+	public static ArrayList<String> collecting(CompiledDFA system, TupleStore tuples, boolean useMonitoring,
+			int nMaxStates, int nMaxAutomatonsPerBatch, int nThreads, CollectingListener listener,
+			CancellationToken token) {
+		long start = System.currentTimeMillis();
+		TupleStore temp = tuples.copy();
+		System.out.println("Total automaton number: " + temp.size());
+		temp.removeAll(temp.infeasible(system));
+
+		ParallelCollector collector = new ParallelCollector(system, temp, useMonitoring, nMaxStates,
+				nMaxAutomatonsPerBatch, listener, token, tuples.size(), start);
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		try {
+			List<Future<ArrayList<String>>> futures = new ArrayList<>();
+			for (int w = 0; w < nThreads; w++) {
+				int worker = w;
+				futures.add(executor.submit((Callable<ArrayList<String>>) () -> collector.work(worker, nThreads)));
+			}
+			ArrayList<String> stringList = new ArrayList<String>();
+			for (Future<ArrayList<String>> f : futures)
+				stringList.addAll(f.get());
+			if (token != null && token.isCancelled() && collector.remaining.get() > 0)
+				System.out.println("Collecting stopped, " + collector.remaining.get() + " automata not processed");
+			return stringList;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Collecting interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Collecting failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The loop of a worker: it fills a batch with the T-combinations that are
+	 * neither done nor claimed, starting from its own position, until none is
+	 * left. When only a few T-combinations remain, the workers leave one at a
+	 * time, so that the last ones are grouped into few batches as in the
+	 * sequential collecting.
+	 */
+	private ArrayList<String> work(int worker, int nThreads) {
+		ArrayList<String> stringList = new ArrayList<String>();
+		int n = codes.length;
+		int cursor = (int) ((long) n * worker / nThreads);
+		ArrayList<TupleRecognizer> batch = new ArrayList<>();
+		ArrayList<Integer> members = new ArrayList<>();
+		while (!Thread.currentThread().isInterrupted()) {
+			if (remaining.get() < worker * nMaxAutomatonsPerBatch)
+				break;
+			if (token != null && token.isCancelled())
+				break;
+			batch.clear();
+			members.clear();
+			int[] witness = null;
+			boolean found = false;
+			for (int checked = 0; checked < n; checked++, cursor = (cursor + 1) % n) {
+				int code = codes[cursor];
+				if (isSet(done, code) || !claim(code))
+					continue;
+				found = true;
+				TupleRecognizer a = tuples.recognizer(cursor);
+				// The product states must be packed into a single long
+				if (!batch.isEmpty() && !OnTheFlyCollector.fits(system, batch, a)) {
+					release(code);
+					break;
+				}
+				// The first T-combination of a batch is searched without limit, so that it
+				// is never lost
+				boolean first = batch.isEmpty();
+				batch.add(a);
+				OnTheFlyCollector.SearchResult result = OnTheFlyCollector.search(system, batch,
+						first ? Integer.MAX_VALUE : nMaxStates);
+				if (result.witness != null) {
+					witness = result.witness;
+					members.add(code);
+				} else {
+					batch.remove(batch.size() - 1);
+					release(code);
+					// It cannot be covered even alone
+					if (batch.isEmpty() && setBit(done, code))
+						remaining.decrementAndGet();
+				}
+				// Limit the size of the explored product
+				if (result.exploredStates >= nMaxStates || batch.size() >= nMaxAutomatonsPerBatch) {
+					cursor = (cursor + 1) % n;
+					break;
+				}
+			}
+			if (!found) {
+				// A T-combination claimed by another worker may still be released
+				if (inFlight.get() == 0)
+					break;
+				Thread.yield();
+				continue;
+			}
+			if (witness == null)
+				continue;
+			// The sequences emitted meanwhile by the other workers may already cover the
+			// whole batch, then this sequence would be redundant
+			if (useMonitoring && allDone(members)) {
+				for (int code : members)
+					release(code);
+				continue;
+			}
+
+			// Mark the batch and, with the monitoring, everything the sequence covers
+			for (int code : members)
+				if (setBit(done, code))
+					remaining.decrementAndGet();
+			if (useMonitoring) {
+				CoverageIndex index = new CoverageIndex(tuples);
+				index.scan(witness, code -> {
+					if ((pending[code >>> 6] & (1L << code)) != 0 && setBit(done, code))
+						remaining.decrementAndGet();
+				});
+			}
+			for (int code : members)
+				release(code);
+
+			String shortestExample = OnTheFlyCollector.toString(system.getAlphabet(), witness);
+			System.out.println(shortestExample);
+			System.out.println("Remaining automaton to be processed: " + Math.max(remaining.get(), 0));
+			if (!shortestExample.equals("")) {
+				stringList.add(shortestExample);
+				if (listener != null)
+					publish(shortestExample);
+			}
+		}
+		return stringList;
+	}
+
+	/**
+	 * Hands a sequence to the listener, one worker at a time so that the counters
+	 * grow with the published sequences.
+	 */
+	private void publish(String sequence) {
+		synchronized (listener) {
+			published++;
+			publishedLength += sequence.length();
+			listener.sequenceFound(sequence, new CollectingProgress(total, total - codes.length,
+					Math.max(remaining.get(), 0), published, publishedLength, System.currentTimeMillis() - start));
+		}
+	}
+
+	private boolean claim(int code) {
+		if (!setBit(claimed, code))
+			return false;
+		inFlight.incrementAndGet();
+		return true;
+	}
+
+	private void release(int code) {
+		clearBit(claimed, code);
+		inFlight.decrementAndGet();
+	}
+
+	private boolean allDone(List<Integer> members) {
+		for (int code : members)
+			if (!isSet(done, code))
+				return false;
+		return true;
+	}
+
+	private static boolean isSet(AtomicLongArray bits, int i) {
+		return (bits.get(i >>> 6) & (1L << i)) != 0;
+	}
+
+	/**
+	 * @return "true" if the bit was not set
+	 */
+	private static boolean setBit(AtomicLongArray bits, int i) {
+		long mask = 1L << i;
+		while (true) {
+			long old = bits.get(i >>> 6);
+			if ((old & mask) != 0)
+				return false;
+			if (bits.compareAndSet(i >>> 6, old, old | mask))
+				return true;
+		}
+	}
+
+	private static void clearBit(AtomicLongArray bits, int i) {
+		long mask = 1L << i;
+		while (true) {
+			long old = bits.get(i >>> 6);
+			if (bits.compareAndSet(i >>> 6, old, old & ~mask))
+				return;
+		}
+	}
+}
@@ -0,0 +1,374 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.collect.BiMap;
+
+import dk.brics.automaton.Automaton;
+import enums.SuiteObjective;
+
+/**
+ * The Class PortfolioCollector runs the collecting operation on several
+ * orderings of the T-combinations and keeps the best suite. The order decides
+ * how the T-combinations are grouped in batches, so the size of the suite
+ * changes a lot from one shuffle to another. Every ordering is given by a
+ * seed, and the orderings are collected in parallel: a run is stopped as soon
+ * as its partial suite is already worse than the best complete one, and the
+ * unfinished runs are stopped when the time budget expires, provided that one
+ * run has finished. A listener receives the sequences of the winning suite
+ * once all the runs are over, since the winner is not known before.
+ *
+ * The winning suite is reproducible from its seed: the T-combinations are
+ * sorted before being shuffled, so the store built by
+ * {@link TupleStore#create(BiMap, int, Boolean, Random)} with a generator of
+ * the same seed is collected by {@link OnTheFlyCollector} into the same
+ * sequences.
+ */
+public class PortfolioCollector {
+
+	/**
+	 * The suite of a run of the portfolio
+	 */
+	public static class Result {
+		private final int run;
+		private final long seed;
+		private final ArrayList<String> sequences;
+		private final int totalLength;
+		/** the number of T-combinations still to be covered after each sequence */
+		private final int[] remaining;
+		private final boolean complete;
+
+		Result(int run, long seed, ArrayList<String> sequences, int totalLength, int[] remaining,
+				boolean complete) {
+			this.run = run;
+			this.seed = seed;
+			this.sequences = sequences;
+			this.totalLength = totalLength;
+			this.remaining = remaining;
+			this.complete = complete;
+		}
+
+		/**
+		 * @return the index of the run
+		 */
+		public int getRun() {
+			return run;
+		}
+
+		/**
+		 * @return the seed used to shuffle the T-combinations
+		 */
+		public long getSeed() {
+			return seed;
+		}
+
+		/**
+		 * @return the test strings
+		 */
+		public ArrayList<String> getSequences() {
+			return sequences;
+		}
+
+		/**
+		 * @return the sum of the lengths of the sequences
+		 */
+		public int getTotalLength() {
+			return totalLength;
+		}
+
+		/**
+		 * @return "false" if the run has been stopped by the token before covering
+		 *         all the T-combinations
+		 */
+		public boolean isComplete() {
+			return complete;
+		}
+	}
+
+	private final CompiledDFA system;
+	/** all the T-combinations, sorted */
+	private final TupleStore tuples;
+	/** the codes of the T-combinations the FSM cannot cover */
+	private final BitSet infeasible;
+	private final boolean useMonitoring;
+	private final int nMaxStates;
+	private final int nMaxAutomatonsPerBatch;
+	private final SuiteObjective objective;
+	private final CancellationToken budget;
+	private final CancellationToken token;
+	private final AtomicReference<Result> best = new AtomicReference<>();
+
+	private PortfolioCollector(CompiledDFA system, TupleStore tuples, boolean useMonitoring, int nMaxStates,
+			int nMaxAutomatonsPerBatch, SuiteObjective objective, CancellationToken budget, CancellationToken token) {
+		this.system = system;
+		this.tuples = tuples.copy();
+		this.tuples.sort();
+		this.infeasible = new BitSet();
+		BitSet unreachable = this.tuples.infeasible(system);
+		for (int i = unreachable.nextSetBit(0); i >= 0; i = unreachable.nextSetBit(i + 1))
+			infeasible.set(this.tuples.code(i));
+		this.useMonitoring = useMonitoring;
+		this.nMaxStates = nMaxStates;
+		this.nMaxAutomatonsPerBatch = nMaxAutomatonsPerBatch;
+		this.objective = objective;
+		this.budget = budget;
+		this.token = token;
+	}
+
+	/**
+	 * Collecting operation keeping the best of the given number of orderings of
+	 * the T-combinations.
+	 *
+	 * @param fullSystemAutomaton    : automaton representing the FSM - Full System
+	 * @param tuples                 the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @param nRuns                  the number of orderings
+	 * @param seed                   the seed from which the seeds of the runs are
+	 *                               derived
+	 * @param timeBudget             the time after which the unfinished runs are
+	 *                               stopped, once one has finished [ms]
+	 * @param objective              the measure to be minimized
+	 * @return the best suite
+	 */
+	public static Result collecting(Automaton fullSystemAutomaton, TupleStore tuples, Boolean useMonitoring,
+			int nMaxStates, int nMaxAutomatonsPerBatch, int nRuns, long seed, long timeBudget,
+			SuiteObjective objective) {
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton, tuples.getAlphabet());
+		return collecting(system, tuples, useMonitoring, nMaxStates, nMaxAutomatonsPerBatch, nRuns, seed, timeBudget,
+				objective);
+	}
+
+	/**
+	 * Collecting operation working on the compiled FSM, keeping the best of the
+	 * given number of orderings of the T-combinations. The given store is not
+	 * modified.
+	 *
+	 * @param system                 the compiled automaton of the FSM
+	 * @param tuples                 the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @param nRuns                  the number of orderings
+	 * @param seed                   the seed from which the seeds of the runs are
+	 *                               derived
+	 * @param timeBudget             the time after which the unfinished runs are
+	 *                               stopped, once one has finished [ms]
+	 * @param objective              the measure to be minimized
+	 * @return the best suite
+	 * @throws IllegalArgumentException if the number of runs is not positive
+	 */
+	public static Result collecting(CompiledDFA system, TupleStore tuples, boolean useMonitoring, int nMaxStates,
+			int nMaxAutomatonsPerBatch, int nRuns, long seed, long timeBudget, SuiteObjective objective) {
+		return collecting(system, tuples, useMonitoring, nMaxStates, nMaxAutomatonsPerBatch, nRuns, seed, timeBudget,
+				objective, null, null);
+	}
+
+	/**
+	 * Collecting operation working on the compiled FSM, keeping the best of the
+	 * given number of orderings of the T-combinations, and publishing the
+	 * sequences of the winning suite to the listener once all the runs are over.
+	 * When the token is cancelled, the unfinished runs are stopped even if none
+	 * has finished, and the best partial suite is returned if no run is complete.
+	 * The given store is not modified.
+	 *
+	 * @param system                 the compiled automaton of the FSM
+	 * @param tuples                 the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @param nRuns                  the number of orderings
+	 * @param seed                   the seed from which the seeds of the runs are
+	 *                               derived
+	 * @param timeBudget             the time after which the unfinished runs are
+	 *                               stopped, once one has finished [ms]
+	 * @param objective              the measure to be minimized
+	 * @param listener               the listener of the sequences, may be null
+	 * @param token                  the token stopping the collecting, may be
+	 *                               null
+	 * @return the best suite
+	 * @throws IllegalArgumentException if the number of runs is not positive
+	 */
+	public static Result collecting(CompiledDFA system, TupleStore tuples, boolean useMonitoring, int nMaxStates,
+			int nMaxAutomatonsPerBatch, int nRuns, long seed, long timeBudget, SuiteObjective objective,
+			CollectingListener listener, CancellationToken token) {
+		long start = System.currentTimeMillis();
+		if (nRuns < 1)
+			throw new IllegalArgumentException("At least one run is needed: " + nRuns);
+		System.out.println("Total automaton number: " + tuples.size());
+
+		PortfolioCollector portfolio = new PortfolioCollector(system, tuples, useMonitoring, nMaxStates,
+				nMaxAutomatonsPerBatch, objective, CancellationToken.withTimeout(timeBudget), token);
+		long[] seeds = seeds(seed, nRuns);
+		ExecutorService executor = Executors
+				.newFixedThreadPool(Math.min(nRuns, Runtime.getRuntime().availableProcessors()));
+		try {
+			List<Future<Result>> futures = new ArrayList<>();
+			for (int r = 0; r < nRuns; r++) {
+				int run = r;
+				futures.add(executor.submit((Callable<Result>) () -> portfolio.run(run, seeds[run])));
+			}
+			for (Future<Result> f : futures)
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Collecting interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Collecting failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Result result = portfolio.best.get();
+		if (!result.isComplete())
+			System.out.println("Collecting stopped, " + result.remaining[result.remaining.length - 1]
+					+ " automata not processed");
+		System.out.println("Best of " + nRuns + " orderings: run " + result.getRun() + ", seed " + result.getSeed()
+				+ ", " + result.getSequences().size() + " sequences, total length " + result.getTotalLength());
+		if (listener != null)
+			portfolio.publish(result, listener, System.currentTimeMillis() - start);
+		return result;
+	}
+
+	/**
+	 * Hands the sequences of the suite to the listener, with the counters taken
+	 * when the run found them.
+	 */
+	private void publish(Result result, CollectingListener listener, long elapsed) {
+		int total = tuples.size();
+		int nInfeasible = infeasible.cardinality();
+		long totalLength = 0;
+		for (int i = 0; i < result.sequences.size(); i++) {
+			String sequence = result.sequences.get(i);
+			totalLength += sequence.length();
+			listener.sequenceFound(sequence,
+					new CollectingProgress(total, nInfeasible, result.remaining[i + 1], i + 1, totalLength, elapsed));
+		}
+	}
+
+	/**
+	 * Derives the seeds of the runs, so that the whole portfolio depends on a
+	 * single seed.
+	 *
+	 * @param seed  the seed of the portfolio
+	 * @param nRuns the number of runs
+	 * @return the seeds of the runs
+	 */
+	public static long[] seeds(long seed, int nRuns) {
+		Random random = new Random(seed);
+		long[] seeds = new long[nRuns];
+		for (int r = 0; r < nRuns; r++)
+			seeds[r] = random.nextLong();
+		return seeds;
+	}
+
+	/**
+	 * Collects the T-combinations shuffled with the given seed.
+	 *
+	 * @return the suite, null if the run has been beaten
+	 */
+	private Result run(int run, long seed) {
+		TupleStore temp = tuples.copy();
+		temp.shuffle(new Random(seed));
+		BitSet unreachable = new BitSet(temp.size());
+		for (int i = 0; i < temp.size(); i++)
+			if (infeasible.get(temp.code(i)))
+				unreachable.set(i);
+		temp.removeAll(unreachable);
+
+		ArrayList<String> stringList = new ArrayList<String>();
+		int totalLength = 0;
+		int[] remaining = new int[16];
+		remaining[0] = temp.size();
+		boolean complete = true;
+		while (temp.size() > 0) {
+			if (token != null && token.isCancelled()) {
+				complete = false;
+				break;
+			}
+			if (isBeaten(run, stringList.size(), totalLength))
+				return null;
+			int oldDim = temp.size();
+			int[] witness = OnTheFlyCollector.collectBatch(system, temp, nMaxStates, nMaxAutomatonsPerBatch);
+
+			// Apply the monitoring operation
+			if (useMonitoring)
+				temp.removeAccepted(witness);
+
+			if (witness.length > 0) {
+				stringList.add(OnTheFlyCollector.toString(system.getAlphabet(), witness));
+				totalLength += witness.length;
+				if (stringList.size() == remaining.length)
+					remaining = Arrays.copyOf(remaining, remaining.length * 2);
+				remaining[stringList.size()] = temp.size();
+			}
+			if (temp.size() == oldDim)
+				break;
+		}
+
+		Result result = new Result(run, seed, stringList, totalLength,
+				Arrays.copyOf(remaining, stringList.size() + 1), complete);
+		best.accumulateAndGet(result, (current, candidate) -> current == null || isBetter(candidate, current)
+				? candidate
+				: current);
+		return result;
+	}
+
+	/**
+	 * Checks whether a run can be stopped. Both the number of sequences and the
+	 * total length only grow while collecting, so a partial suite already worse
+	 * than the best one cannot win.
+	 */
+	private boolean isBeaten(int run, int nSequences, int totalLength) {
+		Result current = best.get();
+		if (current == null)
+			return false;
+		return budget.isCancelled() || compare(nSequences, totalLength, run, current) > 0;
+	}
+
+	/**
+	 * A complete suite is better than any partial one, which is kept only when
+	 * the token stops all the runs.
+	 */
+	private boolean isBetter(Result candidate, Result current) {
+		if (candidate.complete != current.complete)
+			return candidate.complete;
+		if (!candidate.complete) {
+			int left = candidate.remaining[candidate.remaining.length - 1];
+			int right = current.remaining[current.remaining.length - 1];
+			if (left != right)
+				return left < right;
+		}
+		return compare(candidate.sequences.size(), candidate.totalLength, candidate.run, current) < 0;
+	}
+
+	/**
+	 * Compares a suite to a result, following the objective; the ties are broken
+	 * by the index of the run, so that the winner does not depend on timing.
+	 */
+	private int compare(int nSequences, int totalLength, int run, Result other) {
+		int bySize = Integer.compare(nSequences, other.sequences.size());
+		int byLength = Integer.compare(totalLength, other.totalLength);
+		int first = objective == SuiteObjective.TOTAL_LENGTH ? byLength : bySize;
+		int second = objective == SuiteObjective.TOTAL_LENGTH ? bySize : byLength;
+		if (first != 0)
+			return first;
+		if (second != 0)
+			return second;
+		return Integer.compare(run, other.run);
+	}
+}
@@ -0,0 +1,88 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Partition of the products of a family by behaviour. Two products belong to
+ * the same class when they enable exactly the same transitions of the FSM, so
+ * that their automata are identical even if their features differ (for example
+ * in features no guard mentions). The generation can be run once per class and
+ * its results shared by all the products of the class.
+ */
+public class ProductClasses {
+
+	private final int[] classOf;
+	private final ArrayList<BitSet> enabled = new ArrayList<>();
+	private final ArrayList<BitSet> members = new ArrayList<>();
+
+	/**
+	 * Partitions the products, hashing their enabled transitions. The classes
+	 * are numbered in order of their first product.
+	 *
+	 * @param enabledTransitions for every product, the transitions whose guard
+	 *                           holds in it
+	 */
+	public ProductClasses(BitSet[] enabledTransitions) {
+		this.classOf = new int[enabledTransitions.length];
+		HashMap<BitSet, Integer> ids = new HashMap<>();
+		for (int p = 0; p < enabledTransitions.length; p++) {
+			Integer c = ids.get(enabledTransitions[p]);
+			if (c == null) {
+				c = enabled.size();
+				ids.put(enabledTransitions[p], c);
+				enabled.add(enabledTransitions[p]);
+				members.add(new BitSet(enabledTransitions.length));
+			}
+			classOf[p] = c;
+			members.get(c).set(p);
+		}
+	}
+
+	/**
+	 * @return the number of classes
+	 */
+	public int size() {
+		return enabled.size();
+	}
+
+	/**
+	 * @return the number of products
+	 */
+	public int getNumberOfProducts() {
+		return classOf.length;
+	}
+
+	/**
+	 * @param product the product
+	 * @return the class of the product
+	 */
+	public int classOf(int product) {
+		return classOf[product];
+	}
+
+	/**
+	 * @param c the class
+	 * @return the first product of the class
+	 */
+	public int getRepresentative(int c) {
+		return members.get(c).nextSetBit(0);
+	}
+
+	/**
+	 * @param c the class
+	 * @return the products of the class
+	 */
+	public BitSet getProducts(int c) {
+		return (BitSet) members.get(c).clone();
+	}
+
+	/**
+	 * @param c the class
+	 * @return the transitions enabled by the products of the class
+	 */
+	public BitSet getEnabledTransitions(int c) {
+		return (BitSet) enabled.get(c).clone();
+	}
+}
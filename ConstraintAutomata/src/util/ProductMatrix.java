@@ -0,0 +1,327 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import enums.ReparationMode;
+
+/**
+ * Validity and coverage of a test suite on all the products of a family,
+ * computed in a single simulation of every sequence over a
+ * {@link FeaturedAutomaton}. While a sequence is read, the products are split
+ * into groups following the same path, so every step is taken once for all
+ * the products of a group. The coverage is kept in columns: for every state,
+ * transition and T-combination, the set of the products covering it.
+ *
+ * The metrics of every product are the same computed by {@link SuiteAnalyzer}
+ * on the automaton of the product.
+ */
+public class ProductMatrix {
+
+	private final int nProducts;
+	private final BitSet[] validity;
+	private final SuiteReport[] reports;
+
+	private ProductMatrix(int nProducts, BitSet[] validity, SuiteReport[] reports) {
+		this.nProducts = nProducts;
+		this.validity = validity;
+		this.reports = reports;
+	}
+
+	/**
+	 * Evaluates the sequences on all the products of the family.
+	 *
+	 * @param family     the automaton of the family
+	 * @param sequences  the sequences, over the chars of the family
+	 * @param tuples     the T-combinations, over the alphabet of the family
+	 * @param repairMode the repair mode
+	 * @return the matrix
+	 * @throws IllegalArgumentException if the alphabets differ
+	 */
+	public static ProductMatrix evaluate(FeaturedAutomaton family, List<String> sequences, TupleStore tuples,
+			ReparationMode repairMode) {
+		Alphabet alphabet = family.getAlphabet();
+		if (tuples.getAlphabet().size() != alphabet.size())
+			throw new IllegalArgumentException("The T-combinations are not over the alphabet of the family");
+		for (int c = 0; c < alphabet.size(); c++)
+			if (tuples.getAlphabet().symbol(c) != alphabet.symbol(c))
+				throw new IllegalArgumentException("The T-combinations are not over the alphabet of the family");
+
+		int nProducts = family.getNumberOfProducts();
+		int codes = 1;
+		for (int j = 0; j < tuples.getStrength(); j++)
+			codes *= alphabet.size();
+		int[] tupleOfCode = new int[codes];
+		Arrays.fill(tupleOfCode, -1);
+		for (int i = 0; i < tuples.size(); i++)
+			tupleOfCode[tuples.code(i)] = i;
+
+		BitSet[] validity = new BitSet[sequences.size()];
+		Accumulator total = IntStream.range(0, sequences.size()).parallel().collect(
+				() -> new Accumulator(family, tuples, tupleOfCode, repairMode),
+				(acc, i) -> validity[i] = acc.add(sequences.get(i)), Accumulator::merge);
+
+		// The feasible T-combinations only depend on the transitions of the product
+		int[] nValid = new int[nProducts];
+		ProductClasses classes = family.getProductClasses();
+		IntStream.range(0, classes.size()).parallel().forEach(c -> {
+			int feasible = new FeasibilityAnalyzer(family.project(classes.getRepresentative(c)))
+					.getNumberOfFeasible(tuples);
+			BitSet products = classes.getProducts(c);
+			for (int p = products.nextSetBit(0); p >= 0; p = products.nextSetBit(p + 1))
+				nValid[p] = feasible;
+		});
+
+		int[] valid = count(validity, nProducts);
+		int[] states = count(total.states, nProducts);
+		int[] transitions = count(total.transitions, nProducts);
+		int[] covered = count(total.combinations, nProducts);
+		SuiteReport[] reports = new SuiteReport[nProducts];
+		for (int p = 0; p < nProducts; p++)
+			reports[p] = new SuiteReport(total.count, total.maxLength, total.count > 0 ? total.minLength : 0,
+					total.totalLength, valid[p], states[p], transitions[p], tuples.size(), nValid[p], covered[p]);
+		return new ProductMatrix(nProducts, validity, reports);
+	}
+
+	/**
+	 * @return for every product, the number of columns containing it
+	 */
+	private static int[] count(BitSet[] columns, int nProducts) {
+		int[] result = new int[nProducts];
+		for (BitSet column : columns)
+			if (column != null)
+				for (int p = column.nextSetBit(0); p >= 0; p = column.nextSetBit(p + 1))
+					result[p]++;
+		return result;
+	}
+
+	/**
+	 * @return the number of products
+	 */
+	public int getNumberOfProducts() {
+		return nProducts;
+	}
+
+	/**
+	 * @return the number of sequences
+	 */
+	public int getNumberOfSequences() {
+		return validity.length;
+	}
+
+	/**
+	 * @param sequence the index of the sequence
+	 * @return the products for which the sequence is valid
+	 */
+	public BitSet getValidProducts(int sequence) {
+		return (BitSet) validity[sequence].clone();
+	}
+
+	/**
+	 * @param sequence the index of the sequence
+	 * @param product  the product
+	 * @return "true" if the sequence is valid for the product
+	 */
+	public boolean isValid(int sequence, int product) {
+		return validity[sequence].get(product);
+	}
+
+	/**
+	 * @param product the product
+	 * @return the metrics of the suite on the product
+	 */
+	public SuiteReport getReport(int product) {
+		return reports[product];
+	}
+
+	/**
+	 * Products following the same path while a sequence is read.
+	 */
+	private static class Group {
+		final BitSet products;
+		int[] path;
+		int[] word;
+		int length;
+		boolean failed;
+		boolean stopped;
+
+		Group(BitSet products, int state, int capacity) {
+			this.products = products;
+			this.path = new int[capacity + 1];
+			this.word = new int[capacity];
+			this.path[0] = state;
+		}
+
+		Group split(BitSet products) {
+			Group g = new Group(products, 0, word.length);
+			System.arraycopy(path, 0, g.path, 0, length + 1);
+			System.arraycopy(word, 0, g.word, 0, length);
+			g.length = length;
+			g.failed = failed;
+			return g;
+		}
+
+		int state() {
+			return path[length];
+		}
+
+		void append(int symbol, int state) {
+			word[length++] = symbol;
+			path[length] = state;
+		}
+	}
+
+	/**
+	 * Partial coverage of a subset of the sequences.
+	 */
+	private static class Accumulator {
+
+		private final FeaturedAutomaton family;
+		private final TupleStore tuples;
+		private final int[] tupleOfCode;
+		private final ReparationMode repairMode;
+		private final int k;
+		private final BitSet[] states;
+		private final BitSet[] transitions;
+		private final BitSet[] combinations;
+		private int count;
+		private int maxLength;
+		private int minLength = Integer.MAX_VALUE;
+		private int totalLength;
+
+		Accumulator(FeaturedAutomaton family, TupleStore tuples, int[] tupleOfCode, ReparationMode repairMode) {
+			this.family = family;
+			this.tuples = tuples;
+			this.tupleOfCode = tupleOfCode;
+			this.repairMode = repairMode;
+			this.k = family.getAlphabet().size();
+			this.states = new BitSet[family.getNumberOfStates()];
+			this.transitions = new BitSet[family.getNumberOfStates() * k];
+			this.combinations = new BitSet[tuples.size()];
+		}
+
+		/**
+		 * Simulates a sequence on all the products.
+		 *
+		 * @return the products for which the sequence is valid
+		 */
+		BitSet add(String s) {
+			count++;
+			maxLength = Math.max(maxLength, s.length());
+			minLength = Math.min(minLength, s.length());
+			totalLength += s.length();
+
+			ArrayList<Group> groups = new ArrayList<>();
+			BitSet started = new BitSet(family.getNumberOfProducts());
+			for (int g = 0; g < family.getNumberOfInitialStates(); g++) {
+				groups.add(new Group((BitSet) family.getInitialProducts(g).clone(), family.getInitialState(g),
+						s.length()));
+				started.or(family.getInitialProducts(g));
+			}
+			// Products without transitions cannot read any symbol
+			BitSet empty = new BitSet(family.getNumberOfProducts());
+			empty.set(0, family.getNumberOfProducts());
+			empty.andNot(started);
+			if (!empty.isEmpty()) {
+				Group g = new Group(empty, -1, s.length());
+				g.failed = s.length() > 0;
+				g.stopped = true;
+				groups.add(g);
+			}
+
+			Alphabet alphabet = family.getAlphabet();
+			for (int i = 0; i < s.length(); i++) {
+				int c = alphabet.indexOf(s.charAt(i));
+				ArrayList<Group> next = new ArrayList<>(groups.size());
+				for (Group g : groups) {
+					if (g.stopped) {
+						next.add(g);
+						continue;
+					}
+					step(g, c, next);
+				}
+				groups = next;
+			}
+
+			BitSet valid = new BitSet(family.getNumberOfProducts());
+			for (Group g : groups) {
+				if (!g.failed)
+					valid.or(g.products);
+				// With REJECT_NOT_VALID the repaired sequence is empty
+				if (!g.failed || repairMode != ReparationMode.REJECT_NOT_VALID)
+					cover(g);
+			}
+			return valid;
+		}
+
+		private void step(Group g, int c, List<Group> next) {
+			int state = g.state();
+			int[] targets = c < 0 ? null : family.getTargets(state, c);
+			BitSet rest = g.products;
+			if (targets != null) {
+				BitSet[] presence = family.getPresence(state, c);
+				for (int a = 0; a < targets.length && !rest.isEmpty(); a++) {
+					if (!rest.intersects(presence[a]))
+						continue;
+					BitSet moving = (BitSet) rest.clone();
+					moving.and(presence[a]);
+					rest = (BitSet) rest.clone();
+					rest.andNot(presence[a]);
+					Group h = rest.isEmpty() && moving.equals(g.products) ? g : g.split(moving);
+					h.append(c, targets[a]);
+					next.add(h);
+				}
+			}
+			if (rest.isEmpty())
+				return;
+			// The products without the transition fail on the symbol
+			Group f = rest.equals(g.products) ? g : g.split(rest);
+			f.failed = true;
+			if (repairMode != ReparationMode.SKIP_ERROR)
+				f.stopped = true;
+			next.add(f);
+		}
+
+		private void cover(Group g) {
+			if (g.length == 0)
+				return;
+			column(states, g.path[0]).or(g.products);
+			for (int i = 0; i < g.length; i++) {
+				column(transitions, g.path[i] * k + g.word[i]).or(g.products);
+				column(states, g.path[i + 1]).or(g.products);
+			}
+			CoverageIndex index = new CoverageIndex(tuples);
+			index.scan(Arrays.copyOf(g.word, g.length), code -> {
+				int t = tupleOfCode[code];
+				if (t >= 0)
+					column(combinations, t).or(g.products);
+			});
+		}
+
+		private BitSet column(BitSet[] columns, int i) {
+			if (columns[i] == null)
+				columns[i] = new BitSet(family.getNumberOfProducts());
+			return columns[i];
+		}
+
+		Accumulator merge(Accumulator other) {
+			count += other.count;
+			maxLength = Math.max(maxLength, other.maxLength);
+			minLength = Math.min(minLength, other.minLength);
+			totalLength += other.totalLength;
+			or(states, other.states);
+			or(transitions, other.transitions);
+			or(combinations, other.combinations);
+			return this;
+		}
+
+		private void or(BitSet[] columns, BitSet[] others) {
+			for (int i = 0; i < columns.length; i++)
+				if (others[i] != null)
+					column(columns, i).or(others[i]);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import dk.brics.automaton.Automaton;
+
+/**
+ * Set of T-combinations given by a list of recognizers, typically the compiled
+ * automata built by {@link Utils#getAutomatonListForTRecognition}.
+ */
+public class RecognizerList implements TupleSet {
+
+	private final ArrayList<TupleRecognizer> recognizers;
+
+	/**
+	 * Instantiates a new list of recognizers.
+	 *
+	 * @param recognizers the recognizers, the list is not copied
+	 */
+	public RecognizerList(ArrayList<TupleRecognizer> recognizers) {
+		this.recognizers = recognizers;
+	}
+
+	/**
+	 * Compiles the automata of the T-combinations over the given alphabet.
+	 *
+	 * @param automata the automata recognizing the T-combinations
+	 * @param alphabet the alphabet of the system
+	 * @return the list of the compiled automata
+	 */
+	public static RecognizerList of(List<Automaton> automata, Alphabet alphabet) {
+		ArrayList<TupleRecognizer> recognizers = new ArrayList<>();
+		for (Automaton a : automata)
+			recognizers.add(CompiledDFA.compile(a, alphabet));
+		return new RecognizerList(recognizers);
+	}
+
+	@Override
+	public int size() {
+		return recognizers.size();
+	}
+
+	@Override
+	public TupleRecognizer recognizer(int i) {
+		return recognizers.get(i);
+	}
+
+	@Override
+	public void removeAll(BitSet indexes) {
+		ArrayList<TupleRecognizer> kept = new ArrayList<>();
+		for (int i = 0; i < recognizers.size(); i++)
+			if (!indexes.get(i))
+				kept.add(recognizers.get(i));
+		recognizers.clear();
+		recognizers.addAll(kept);
+	}
+
+	@Override
+	public int removeAccepted(int[] word) {
+		int n = recognizers.size();
+		recognizers.removeIf(a -> OnTheFlyCollector.accepts(a, word));
+		return n - recognizers.size();
+	}
+
+	@Override
+	public BitSet infeasible(CompiledDFA system) {
+		BitSet result = new BitSet(recognizers.size());
+		for (int i = 0; i < recognizers.size(); i++)
+			if (!OnTheFlyCollector.isFeasible(system, recognizers.get(i)))
+				result.set(i);
+		return result;
+	}
+
+	@Override
+	public RecognizerList copy() {
+		return new RecognizerList(new ArrayList<>(recognizers));
+	}
+}
@@ -0,0 +1,155 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Single writer of the result files shared by concurrent generations. The
+ * texts are queued and written by a dedicated thread, which keeps a buffered
+ * writer open for every file, so every text is written as a whole and the
+ * producers never wait for the disk (unless the queue is full). A text is
+ * either queued before the end of the queue, and written, or rejected because
+ * the sink has been closed, never dropped.
+ */
+public class ResultSink implements Closeable {
+
+	private static final int CAPACITY = 1024;
+	private static final int MAX_OPEN_FILES = 64;
+
+	/**
+	 * A text to be written
+	 */
+	private static class Record {
+		final String file;
+		final String text;
+		final boolean append;
+
+		Record(String file, String text, boolean append) {
+			this.file = file;
+			this.text = text;
+			this.append = append;
+		}
+	}
+
+	private static final Record END = new Record(null, null, true);
+
+	private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>(CAPACITY);
+	// Only used by the writer thread, the least recently used files are closed
+	private final Map<String, Writer> writers = new LinkedHashMap<String, Writer>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Writer> eldest) {
+			if (size() <= MAX_OPEN_FILES)
+				return false;
+			closeQuietly(eldest.getValue());
+			return true;
+		}
+	};
+	private final Thread writer;
+	private volatile IOException failure;
+	// Guards the queue against the end, so that no text is queued after it
+	private final Object lock = new Object();
+	private boolean closed;
+
+	/**
+	 * Starts the writer thread.
+	 */
+	public ResultSink() {
+		writer = new Thread(this::run, "result-sink");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Queues a text to be written in a file.
+	 *
+	 * @param file   the path of the file
+	 * @param text   the text
+	 * @param append if "false", the file is truncated before writing the text
+	 * @throws IllegalStateException if the sink has been closed
+	 */
+	public void write(String file, String text, boolean append) {
+		Record record = new Record(new File(file).getAbsolutePath(), text, append);
+		synchronized (lock) {
+			if (closed)
+				throw new IllegalStateException("The result sink has been closed");
+			try {
+				queue.put(record);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while writing " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * Writes all the queued texts and closes the files.
+	 *
+	 * @throws IOException if a text could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			synchronized (lock) {
+				if (closed)
+					return;
+				closed = true;
+				queue.put(END);
+			}
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing the result sink", e);
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	private void run() {
+		try {
+			for (Record r = queue.take(); r != END; r = queue.take()) {
+				try {
+					Writer w = writers.get(r.file);
+					if (w == null || !r.append) {
+						if (w != null)
+							closeQuietly(w);
+						w = new BufferedWriter(new FileWriter(r.file, r.append));
+						writers.put(r.file, w);
+					}
+					w.write(r.text);
+				} catch (IOException e) {
+					// Keep on writing the other files, the first error is reported on close
+					Logger.getLogger(ResultSink.class).error("Cannot write " + r.file + ": " + e.getMessage());
+					if (failure == null)
+						failure = e;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			for (Writer w : writers.values())
+				closeQuietly(w);
+			writers.clear();
+		}
+	}
+
+	private void closeQuietly(Writer w) {
+		try {
+			w.close();
+		} catch (IOException e) {
+			if (failure == null)
+				failure = e;
+		}
+	}
+}
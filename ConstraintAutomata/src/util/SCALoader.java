@@ -0,0 +1,136 @@
+package util;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import com.google.common.collect.BiMap;
+
+/**
+ * Loader of the sequence covering arrays computed by external tools. Every line
+ * of the file is a sequence, given as the indexes of its messages separated by
+ * commas, optionally followed by a comma as the tools write them. The file is
+ * memory-mapped and parsed byte by byte, without creating a string per index,
+ * and every sequence is handed to the caller as soon as its line has been
+ * read. Empty lines are skipped; anything else that is not an index, such as
+ * an empty field or a space, is an error.
+ */
+public class SCALoader {
+
+	/** the size of the mapped windows, so that files of any size can be read */
+	private static final long WINDOW = 1L << 30;
+
+	private final char[] symbols;
+	private char[] row = new char[64];
+	private int length;
+	private int index = -1;
+	/** whether the last byte is a carriage return */
+	private boolean carriageReturn;
+	private long line = 1;
+	private long offset;
+
+	private SCALoader(char[] symbols) {
+		this.symbols = symbols;
+	}
+
+	/**
+	 * Builds the array mapping the indexes of the SCA to the chars of the
+	 * messages, in the iteration order of the values of the mapping.
+	 *
+	 * @param msgsMapping the map mapping each message on a single character
+	 * @return the char of every index
+	 */
+	public static char[] symbols(BiMap<String, Character> msgsMapping) {
+		char[] symbols = new char[msgsMapping.size()];
+		int i = 0;
+		for (Character c : msgsMapping.values())
+			symbols[i++] = c;
+		return symbols;
+	}
+
+	/**
+	 * Loads the SCAs, mapping the indexes on the messages of the mapping.
+	 *
+	 * @param msgsMapping the map mapping each message on a single character
+	 * @param scaFilePath the path of the file containing sequence covering arrays
+	 * @param sequences   the consumer of the sequences of chars
+	 * @throws IOException Signals that an I/O exception has occurred, or that the
+	 *                     file is not well formed, with the line and the offset
+	 *                     of the error.
+	 */
+	public static void load(BiMap<String, Character> msgsMapping, String scaFilePath, Consumer<String> sequences)
+			throws IOException {
+		load(symbols(msgsMapping), scaFilePath, sequences);
+	}
+
+	/**
+	 * Loads the SCAs, mapping the indexes on the given chars.
+	 *
+	 * @param symbols     the char of every index
+	 * @param scaFilePath the path of the file containing sequence covering arrays
+	 * @param sequences   the consumer of the sequences of chars
+	 * @throws IOException Signals that an I/O exception has occurred, or that the
+	 *                     file is not well formed, with the line and the offset
+	 *                     of the error.
+	 */
+	public static void load(char[] symbols, String scaFilePath, Consumer<String> sequences) throws IOException {
+		SCALoader loader = new SCALoader(symbols);
+		try (RandomAccessFile file = new RandomAccessFile(scaFilePath, "r");
+				FileChannel channel = file.getChannel()) {
+			long size = channel.size();
+			for (long position = 0; position < size; position += WINDOW) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+						Math.min(WINDOW, size - position));
+				while (buffer.hasRemaining())
+					loader.accept(buffer.get(), sequences);
+			}
+		}
+		// The last line may not be terminated
+		loader.accept((byte) '\n', sequences);
+	}
+
+	private void accept(byte b, Consumer<String> sequences) throws IOException {
+		if (carriageReturn && b != '\n')
+			throw error("carriage return not followed by a line feed");
+		carriageReturn = false;
+		if (b >= '0' && b <= '9') {
+			int digit = b - '0';
+			index = index < 0 ? digit : index * 10 + digit;
+			if (index >= symbols.length)
+				throw error("index out of range: " + index);
+		} else if (b == ',') {
+			if (index < 0)
+				throw error("empty field");
+			append();
+		} else if (b == '\r') {
+			carriageReturn = true;
+		} else if (b == '\n') {
+			if (index >= 0)
+				append();
+			if (length > 0)
+				sequences.accept(new String(row, 0, length));
+			length = 0;
+			line++;
+		} else {
+			throw error("unexpected character '" + (char) (b & 0xff) + "'");
+		}
+		offset++;
+	}
+
+	/**
+	 * Appends the symbol of the index just read to the row.
+	 */
+	private void append() {
+		if (length == row.length)
+			row = Arrays.copyOf(row, length * 2);
+		row[length++] = symbols[index];
+		index = -1;
+	}
+
+	private IOException error(String message) {
+		return new IOException("Malformed SCA file at line " + line + ", offset " + offset + ": " + message);
+	}
+}
@@ -0,0 +1,125 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Constructive sequence covering arrays: sets of sequences containing every
+ * T-combination of the events as a subsequence, built directly from the ids of
+ * the events instead of intersecting the recognizers of the T-combinations.
+ * The time is linear in the size of the output.
+ *
+ * Without repetitions, every sequence is a permutation of the events:
+ * <ul>
+ * <li>strength 2: a permutation and its reverse;</li>
+ * <li>strength 3: for every bit of the ids, the events having the bit unset
+ * followed by the ones having it set, once in increasing and once in
+ * decreasing order of id, together with the reverses of the two, that is
+ * 4 * ceil(log2(n)) permutations.</li>
+ * </ul>
+ * A T-combination with repeated events is covered by a permutation repeated T
+ * times, taking its i-th event from the i-th copy. With
+ * {@link config.ConfigurationData#NOT_SECOND} the first event must precede the
+ * others, so every permutation is repeated; otherwise a single repeated
+ * permutation covers all the T-combinations.
+ */
+public class SequenceCoveringArray {
+
+	private SequenceCoveringArray() {
+	}
+
+	/**
+	 * Builds the covering array of the events of an alphabet.
+	 *
+	 * @param alphabet  the alphabet of the events
+	 * @param strength  the strength, 2 or 3
+	 * @param allowReps whether the T-combinations may repeat an event
+	 * @param notSecond whether the following events must not precede the first
+	 *                  one
+	 * @return the sequences of chars
+	 * @throws IllegalArgumentException if the strength is not supported
+	 */
+	public static ArrayList<String> build(Alphabet alphabet, int strength, boolean allowReps, boolean notSecond) {
+		int[][] rows = permutations(alphabet.size(), strength);
+		if (allowReps && !notSecond)
+			rows = new int[][] { rows[0] };
+
+		ArrayList<String> sequences = new ArrayList<>();
+		for (int[] row : rows) {
+			int copies = allowReps ? strength : 1;
+			char[] chars = new char[row.length * copies];
+			for (int c = 0; c < copies; c++)
+				for (int i = 0; i < row.length; i++)
+					chars[c * row.length + i] = alphabet.symbol(row[i]);
+			if (chars.length > 0)
+				sequences.add(new String(chars));
+		}
+		return sequences;
+	}
+
+	/**
+	 * Builds the permutations covering all the T-combinations of distinct events.
+	 *
+	 * @param n        the number of events
+	 * @param strength the strength, 2 or 3
+	 * @return the permutations of the ids of the events
+	 * @throws IllegalArgumentException if the strength is not supported
+	 */
+	public static int[][] permutations(int n, int strength) {
+		int[] identity = new int[n];
+		for (int v = 0; v < n; v++)
+			identity[v] = v;
+		if (strength == 2)
+			return new int[][] { identity, reverse(identity) };
+		if (strength != 3)
+			throw new IllegalArgumentException("Covering arrays can be built only for strength 2 and 3: " + strength);
+
+		List<int[]> rows = new ArrayList<>();
+		int bits = OnTheFlyCollector.bitsFor(n);
+		for (int b = 0; b < bits; b++) {
+			int[] increasing = new int[n];
+			int[] decreasing = new int[n];
+			int unset = 0;
+			for (int v = 0; v < n; v++)
+				if ((v >> b & 1) == 0)
+					unset++;
+			// Counting sort on the bit, keeping the order of the ids in the two groups
+			int low = 0;
+			int high = unset;
+			for (int v = 0; v < n; v++) {
+				if ((v >> b & 1) == 0)
+					increasing[low++] = v;
+				else
+					increasing[high++] = v;
+			}
+			low = 0;
+			high = unset;
+			for (int v = n - 1; v >= 0; v--) {
+				if ((v >> b & 1) == 0)
+					decreasing[low++] = v;
+				else
+					decreasing[high++] = v;
+			}
+			addDistinct(rows, increasing);
+			addDistinct(rows, reverse(increasing));
+			addDistinct(rows, decreasing);
+			addDistinct(rows, reverse(decreasing));
+		}
+		return rows.toArray(new int[rows.size()][]);
+	}
+
+	private static void addDistinct(List<int[]> rows, int[] row) {
+		for (int[] r : rows)
+			if (Arrays.equals(r, row))
+				return;
+		rows.add(row);
+	}
+
+	private static int[] reverse(int[] row) {
+		int[] reversed = new int[row.length];
+		for (int i = 0; i < row.length; i++)
+			reversed[i] = row[row.length - 1 - i];
+		return reversed;
+	}
+}
@@ -0,0 +1,105 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import enums.ReparationMode;
+
+/**
+ * Repairs the sequences over the compiled automaton of the system. The current
+ * state of the automaton is kept while reading the sequence, so that every
+ * sequence is repaired in a single pass.
+ */
+public class SequenceRepairer {
+
+	private final CompiledDFA system;
+	private final ReparationMode repairMode;
+
+	/**
+	 * Instantiates a new repairer.
+	 *
+	 * @param system     the compiled automaton of the system
+	 * @param repairMode the repair mode
+	 */
+	public SequenceRepairer(CompiledDFA system, ReparationMode repairMode) {
+		this.system = system;
+		this.repairMode = repairMode;
+	}
+
+	/**
+	 * @return the repair mode
+	 */
+	public ReparationMode getRepairMode() {
+		return repairMode;
+	}
+
+	/**
+	 * Repairs a sequence.
+	 * <ul>
+	 * <li>SKIP_ERROR: the characters that would lead the system to an error are
+	 * skipped</li>
+	 * <li>REJECT_NOT_VALID: the sequence is kept only if it is accepted by the
+	 * system, otherwise it is replaced by the empty sequence</li>
+	 * <li>STOP_AT_ERROR: the sequence is cut before the first character that
+	 * leads the system to an error</li>
+	 * </ul>
+	 *
+	 * @param seq the sequence
+	 * @return the repaired sequence
+	 */
+	public String repair(String seq) {
+		switch (repairMode) {
+		case SKIP_ERROR:
+			return skipErrors(seq);
+		case REJECT_NOT_VALID:
+			return system.accepts(seq) ? seq : "";
+		case STOP_AT_ERROR:
+			return stopAtError(seq);
+		default:
+			throw new IllegalArgumentException("Unknown repair mode: " + repairMode);
+		}
+	}
+
+	/**
+	 * Repairs all the sequences in parallel.
+	 *
+	 * @param sequences the sequences
+	 * @return the repaired sequences, in the iteration order of the collection
+	 */
+	public List<String> repairAll(Collection<String> sequences) {
+		return sequences.parallelStream().map(this::repair).collect(Collectors.toCollection(ArrayList::new));
+	}
+
+	private String skipErrors(String seq) {
+		Alphabet alphabet = system.getAlphabet();
+		StringBuilder newStr = new StringBuilder(seq.length());
+		int state = system.initialState();
+		for (int i = 0; i < seq.length(); i++) {
+			int next = step(state, alphabet.indexOf(seq.charAt(i)));
+			if (next >= 0 && system.isAccept(next)) {
+				newStr.append(seq.charAt(i));
+				state = next;
+			}
+		}
+		return newStr.length() == seq.length() ? seq : newStr.toString();
+	}
+
+	private String stopAtError(String seq) {
+		Alphabet alphabet = system.getAlphabet();
+		int state = system.initialState();
+		if (!system.isAccept(state))
+			return "";
+		for (int i = 0; i < seq.length(); i++) {
+			state = step(state, alphabet.indexOf(seq.charAt(i)));
+			if (state < 0 || !system.isAccept(state))
+				return seq.substring(0, i);
+		}
+		return seq;
+	}
+
+	private int step(int state, int symbol) {
+		return symbol < 0 ? -1 : system.step(state, symbol);
+	}
+}
@@ -0,0 +1,370 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Solver of the state coverage: a walk from a starting state visiting all the
+ * states reachable from it. The order of the visits is an asymmetric
+ * travelling salesman tour over the shortest distances of the FSM, computed
+ * once with a breadth-first search from every state. On few states the tour
+ * is computed exactly, by Held-Karp dynamic programming over the subsets of
+ * the states; otherwise it is built by the nearest neighbour heuristic and
+ * improved with 2-opt and Or-opt moves, until no move improves it or the time
+ * budget expires.
+ *
+ * Like the exact tour, the walk comes back to the starting state at the end,
+ * and the return is part of the cost being minimized. When the next state
+ * cannot be reached from the current one, the starting state cannot be reached
+ * either: the walk ends there and a new one is started from the starting
+ * state. Such a step costs more than any path of the FSM, so that the number
+ * of restarts is minimized first.
+ */
+public class StateCoverageSolver {
+
+	private static final int UNREACHABLE = -1;
+	/** the longest segment moved by Or-opt */
+	private static final int MAX_SEGMENT = 3;
+
+	private final CompiledFSM fsm;
+	/** the reachable states, the starting one first */
+	private final int[] states;
+	/** the index of every state in "states", -1 if unreachable */
+	private final int[] index;
+	/** distances between the reachable states, by index */
+	private final int[] dist;
+	/**
+	 * the last transition of a shortest path between the reachable states, by
+	 * index
+	 */
+	private final int[] parent;
+	private final int n;
+	/** the cost of a restart from the starting state, on top of its distance */
+	private final int restart;
+	// Adjacency of the FSM, by source state
+	private final int[] first;
+	private final int[] adj;
+
+	private StateCoverageSolver(CompiledFSM fsm, int start) {
+		this.fsm = fsm;
+		int nStates = fsm.getNumberOfStates();
+		int nTransitions = fsm.getNumberOfTransitions();
+		this.first = new int[nStates + 1];
+		for (int t = 0; t < nTransitions; t++)
+			first[fsm.getSource(t) + 1]++;
+		for (int s = 0; s < nStates; s++)
+			first[s + 1] += first[s];
+		this.adj = new int[nTransitions];
+		int[] fill = Arrays.copyOf(first, nStates);
+		for (int t = 0; t < nTransitions; t++)
+			adj[fill[fsm.getSource(t)]++] = t;
+
+		int[] fromStart = new int[nStates];
+		bfs(start, fromStart, null);
+		this.index = new int[nStates];
+		Arrays.fill(index, -1);
+		int count = 0;
+		for (int s = 0; s < nStates; s++)
+			if (fromStart[s] != UNREACHABLE)
+				count++;
+		this.states = new int[count];
+		this.n = count;
+		states[0] = start;
+		index[start] = 0;
+		count = 1;
+		for (int s = 0; s < nStates; s++) {
+			if (s != start && fromStart[s] != UNREACHABLE) {
+				index[s] = count;
+				states[count++] = s;
+			}
+		}
+		this.restart = n + 1;
+
+		this.dist = new int[n * n];
+		this.parent = new int[n * n];
+		int[] row = new int[nStates];
+		int[] parentRow = new int[nStates];
+		for (int i = 0; i < n; i++) {
+			bfs(states[i], row, parentRow);
+			for (int j = 0; j < n; j++) {
+				dist[i * n + j] = row[states[j]];
+				parent[i * n + j] = parentRow[states[j]];
+			}
+		}
+	}
+
+	/**
+	 * Computes the walks covering all the states reachable from the starting one.
+	 *
+	 * @param fsm            the compiled FSM
+	 * @param start          the starting state
+	 * @param exactMaxStates the largest number of reachable states for which the
+	 *                       tour is computed exactly
+	 * @param timeBudget     the time given to the improvement of the heuristic
+	 *                       path [ms]
+	 * @return the walks, each starting from the starting state, as the ids of
+	 *         their transitions; the last one comes back to the starting state
+	 *         if it can
+	 * @throws IllegalArgumentException if the starting state does not exist
+	 */
+	public static ArrayList<int[]> solve(CompiledFSM fsm, int start, int exactMaxStates, long timeBudget) {
+		if (start < 0 || start >= fsm.getNumberOfStates())
+			throw new IllegalArgumentException("Unknown starting state: " + start);
+		StateCoverageSolver solver = new StateCoverageSolver(fsm, start);
+		int[] path;
+		if (solver.n <= exactMaxStates) {
+			path = solver.heldKarp();
+		} else {
+			path = solver.nearestNeighbour();
+			solver.improve(path, CancellationToken.withTimeout(timeBudget));
+		}
+		return solver.toWalks(path);
+	}
+
+	/**
+	 * Breadth-first search of the FSM.
+	 *
+	 * @param from   the source state
+	 * @param d      filled with the distance of every state, UNREACHABLE if it
+	 *               cannot be reached
+	 * @param parent if not null, filled with the transition reaching every state
+	 */
+	private void bfs(int from, int[] d, int[] parent) {
+		Arrays.fill(d, UNREACHABLE);
+		int[] queue = new int[d.length];
+		int head = 0;
+		int tail = 0;
+		d[from] = 0;
+		queue[tail++] = from;
+		while (head < tail) {
+			int s = queue[head++];
+			for (int i = first[s]; i < first[s + 1]; i++) {
+				int t = adj[i];
+				int v = fsm.getTarget(t);
+				if (d[v] == UNREACHABLE) {
+					d[v] = d[s] + 1;
+					if (parent != null)
+						parent[v] = t;
+					queue[tail++] = v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the cost of moving from the state of index i to the one of index
+	 *         j, restarting from the starting state if needed
+	 */
+	private int cost(int i, int j) {
+		int d = dist[i * n + j];
+		return d != UNREACHABLE ? d : restart + dist[j];
+	}
+
+	/**
+	 * @return the shortest tour, computed by dynamic programming: the cost of
+	 *         every set of states ending in each of them
+	 */
+	private int[] heldKarp() {
+		// The states after the starting one, by index - 1
+		int m = n - 1;
+		int[] path = new int[n];
+		if (m == 0)
+			return path;
+		int full = (1 << m) - 1;
+		int[] best = new int[(full + 1) * m];
+		Arrays.fill(best, Integer.MAX_VALUE);
+		for (int j = 0; j < m; j++)
+			best[(1 << j) * m + j] = cost(0, j + 1);
+		for (int mask = 1; mask <= full; mask++) {
+			for (int i = 0; i < m; i++) {
+				int c = best[mask * m + i];
+				if (c == Integer.MAX_VALUE)
+					continue;
+				for (int j = 0; j < m; j++) {
+					if ((mask >> j & 1) != 0)
+						continue;
+					int next = (mask | 1 << j) * m + j;
+					best[next] = Math.min(best[next], c + cost(i + 1, j + 1));
+				}
+			}
+		}
+
+		// Close the tour, then follow the table backwards
+		int last = 0;
+		for (int i = 1; i < m; i++)
+			if (best[full * m + i] + cost(i + 1, 0) < best[full * m + last] + cost(last + 1, 0))
+				last = i;
+		int mask = full;
+		for (int k = n - 1; k > 1; k--) {
+			path[k] = last + 1;
+			int previous = mask & ~(1 << last);
+			for (int p = 0; p < m; p++) {
+				int c = best[previous * m + p];
+				if (c != Integer.MAX_VALUE && c + cost(p + 1, last + 1) == best[mask * m + last]) {
+					last = p;
+					break;
+				}
+			}
+			mask = previous;
+		}
+		path[1] = last + 1;
+		return path;
+	}
+
+	/**
+	 * @return the path visiting every time the closest state not yet visited
+	 */
+	private int[] nearestNeighbour() {
+		int[] path = new int[n];
+		boolean[] visited = new boolean[n];
+		visited[0] = true;
+		for (int k = 1; k < n; k++) {
+			int current = path[k - 1];
+			int best = -1;
+			for (int j = 1; j < n; j++)
+				if (!visited[j] && (best < 0 || cost(current, j) < cost(current, best)))
+					best = j;
+			path[k] = best;
+			visited[best] = true;
+		}
+		return path;
+	}
+
+	/**
+	 * Applies the improving moves until none is left or the time is over. The
+	 * first state of the path never moves.
+	 */
+	private void improve(int[] path, CancellationToken budget) {
+		boolean improved = true;
+		while (improved && !budget.isCancelled())
+			improved = twoOpt(path, budget) | orOpt(path, budget);
+	}
+
+	/**
+	 * @return the cost of the step from position i to position i + 1 of the
+	 *         path, or back to the starting state at its end
+	 */
+	private int step(int[] path, int i) {
+		return cost(path[i], i + 1 < path.length ? path[i + 1] : 0);
+	}
+
+	/**
+	 * Reverses the segments of the path when it is shorter. Since the distances
+	 * are asymmetric, the cost of the reversed segment is given by the prefix
+	 * sums of the steps walked backwards.
+	 *
+	 * @return "true" if the path has been improved
+	 */
+	private boolean twoOpt(int[] path, CancellationToken budget) {
+		boolean improved = false;
+		long[] forward = new long[n];
+		long[] backward = new long[n];
+		prefixes(path, forward, backward);
+		for (int i = 1; i < n - 1 && !budget.isCancelled(); i++) {
+			for (int j = i + 1; j < n; j++) {
+				long before = cost(path[i - 1], path[i]) + (forward[j] - forward[i]) + step(path, j);
+				long after = cost(path[i - 1], path[j]) + (backward[j] - backward[i])
+						+ cost(path[i], j + 1 < n ? path[j + 1] : 0);
+				if (after < before) {
+					for (int a = i, b = j; a < b; a++, b--) {
+						int tmp = path[a];
+						path[a] = path[b];
+						path[b] = tmp;
+					}
+					prefixes(path, forward, backward);
+					improved = true;
+				}
+			}
+		}
+		return improved;
+	}
+
+	private void prefixes(int[] path, long[] forward, long[] backward) {
+		for (int k = 1; k < n; k++) {
+			forward[k] = forward[k - 1] + cost(path[k - 1], path[k]);
+			backward[k] = backward[k - 1] + cost(path[k], path[k - 1]);
+		}
+	}
+
+	/**
+	 * Moves the segments of up to MAX_SEGMENT states to a better position,
+	 * without reversing them.
+	 *
+	 * @return "true" if the path has been improved
+	 */
+	private boolean orOpt(int[] path, CancellationToken budget) {
+		boolean improved = false;
+		for (int len = 1; len <= MAX_SEGMENT; len++) {
+			for (int i = 1; i + len <= n && !budget.isCancelled(); i++) {
+				int a = path[i];
+				int b = path[i + len - 1];
+				int p = path[i - 1];
+				boolean last = i + len == n;
+				long removed = cost(p, a) + step(path, i + len - 1) - cost(p, last ? 0 : path[i + len]);
+				for (int j = 0; j < n; j++) {
+					if (j >= i - 1 && j < i + len)
+						continue;
+					int x = path[j];
+					int y = j + 1 < n ? path[j + 1] : 0;
+					long added = cost(x, a) + cost(b, y) - cost(x, y);
+					if (added < removed) {
+						move(path, i, len, j);
+						improved = true;
+						break;
+					}
+				}
+			}
+		}
+		return improved;
+	}
+
+	/**
+	 * Moves the segment of the given length starting at i after the position j.
+	 */
+	private static void move(int[] path, int i, int len, int j) {
+		int[] segment = Arrays.copyOfRange(path, i, i + len);
+		if (j < i) {
+			System.arraycopy(path, j + 1, path, j + 1 + len, i - j - 1);
+			System.arraycopy(segment, 0, path, j + 1, len);
+		} else {
+			System.arraycopy(path, i + len, path, i, j - i - len + 1);
+			System.arraycopy(segment, 0, path, j - len + 1, len);
+		}
+	}
+
+	/**
+	 * Converts the path into walks of the FSM, following the shortest paths
+	 * between the states, restarting when needed and coming back to the starting
+	 * state at the end.
+	 */
+	private ArrayList<int[]> toWalks(int[] path) {
+		ArrayList<int[]> walks = new ArrayList<>();
+		int[] walk = new int[n];
+		int length = 0;
+		int current = 0;
+		for (int k = 1; k <= n; k++) {
+			int target = k < n ? path[k] : 0;
+			int d = dist[current * n + target];
+			if (d == UNREACHABLE) {
+				// The starting state cannot be reached either: at the end the walk simply
+				// stops, otherwise a new one is started
+				if (k == n)
+					break;
+				walks.add(Arrays.copyOf(walk, length));
+				length = 0;
+				current = 0;
+				d = dist[target];
+			}
+			if (length + d > walk.length)
+				walk = Arrays.copyOf(walk, Math.max(walk.length * 2, length + d));
+			length += d;
+			// Follow the shortest path backwards from the target
+			for (int s = target, i = length - 1; s != current; s = index[fsm.getSource(walk[i])], i--)
+				walk[i] = parent[current * n + s];
+			current = target;
+		}
+		if (length > 0)
+			walks.add(Arrays.copyOf(walk, length));
+		return walks;
+	}
+}
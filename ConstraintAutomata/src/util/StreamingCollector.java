@@ -0,0 +1,181 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The Class StreamingCollector implements the collecting operation over a
+ * {@link TupleSource}, so that the T-combinations are never all in memory. A
+ * producer thread enumerates the T-combinations, discards the infeasible ones
+ * and passes the others in chunks through a bounded queue, while the collecting
+ * works on a window of pending T-combinations refilled from the queue. With the
+ * monitoring, every new sequence removes the T-combinations of the window it
+ * covers, and the T-combinations covered by the sequences already generated
+ * are removed as soon as they enter the window. Both checks run the
+ * recognizers of the T-combinations on the sequences, so that the memory
+ * depends on the window and on the suite, and not on the number of all the
+ * |alphabet|^t T-combinations as with a {@link CoverageIndex}. A T-combination that cannot be covered even alone
+ * within the limit of visited product states is reported and skipped.
+ */
+public class StreamingCollector {
+
+	/** the number of T-combinations in each chunk passed by the producer */
+	private static final int CHUNK_SIZE = 1024;
+	/** the number of chunks the producer can prepare in advance */
+	private static final int QUEUE_CAPACITY = 16;
+
+	/**
+	 * Collecting operation to create the shortest sequences of messages possible,
+	 * reading the T-combinations from a source.
+	 *
+	 * @param system                 the compiled automaton of the FSM, over the
+	 *                               alphabet of the source
+	 * @param source                 the source of the T-combinations
+	 * @param notSecond              whether the following events must not precede
+	 *                               the first one
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the max number of product states visited for
+	 *                               a single batch
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @param windowSize             the number of pending T-combinations among
+	 *                               which the batches are chosen
+	 * @return the list of the test strings
+	 */
+	public static ArrayList<String> collecting(CompiledDFA system, TupleSource source, boolean notSecond,
+			boolean useMonitoring, int nMaxStates, int nMaxAutomatonsPerBatch, int windowSize) {
+		ArrayList<String> stringList = new ArrayList<String>();
+		Alphabet alphabet = source.getAlphabet();
+		int strength = source.getStrength();
+		BlockingQueue<TupleStore> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		Thread producer = new Thread(() -> produce(system, source, notSecond, queue, error), "tuple-producer");
+		producer.setDaemon(true);
+		producer.start();
+
+		System.out.println("Total automaton number: " + source.size());
+
+		// The sequences generated, as symbol ids
+		ArrayList<int[]> words = new ArrayList<>();
+		TupleStore pending = new TupleStore(alphabet, strength, notSecond, windowSize);
+		boolean ended = false;
+		int uncoverable = 0;
+		try {
+			while (true) {
+				while (!ended && pending.size() < windowSize) {
+					TupleStore chunk = queue.take();
+					if (chunk.size() == 0) {
+						ended = true;
+						if (error.get() != null)
+							throw new IllegalStateException("Error producing the T-combinations", error.get());
+					} else {
+						if (useMonitoring)
+							chunk.removeAll(accepted(chunk, words));
+						pending.addAll(chunk);
+					}
+				}
+				if (pending.size() == 0)
+					break;
+
+				int oldDim = pending.size();
+				int[] witness = OnTheFlyCollector.collectBatch(system, pending, nMaxStates, nMaxAutomatonsPerBatch);
+
+				// Apply the monitoring operation
+				if (useMonitoring) {
+					pending.removeAll(accepted(pending, Collections.singletonList(witness)));
+					words.add(witness);
+				}
+
+				String shortestExample = OnTheFlyCollector.toString(alphabet, witness);
+				System.out.println(shortestExample);
+				System.out.println("Remaining automaton to be processed: " + pending.size() + " + "
+						+ (source.size() - source.getPosition()));
+				if (!shortestExample.equals(""))
+					stringList.add(shortestExample);
+				// The first T-combination alone exceeds the limit of visited states: it is
+				// reported as uncoverable, so that the following ones can be processed
+				if (pending.size() == oldDim) {
+					System.out.println("T-combination not covered within " + nMaxStates + " product states: "
+							+ describe(pending, 0));
+					uncoverable++;
+					BitSet first = new BitSet();
+					first.set(0);
+					pending.removeAll(first);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			producer.interrupt();
+		}
+
+		if (uncoverable > 0)
+			System.out.println("Uncoverable T-combinations: " + uncoverable);
+		return stringList;
+	}
+
+	/**
+	 * @return the indexes of the T-combinations of the store covered by at least
+	 *         one of the sequences
+	 */
+	private static BitSet accepted(TupleStore tuples, List<int[]> words) {
+		BitSet accepted = new BitSet(tuples.size());
+		for (int i = 0; i < tuples.size(); i++) {
+			TupleRecognizer a = tuples.recognizer(i);
+			for (int[] word : words) {
+				if (OnTheFlyCollector.accepts(a, word)) {
+					accepted.set(i);
+					break;
+				}
+			}
+		}
+		return accepted;
+	}
+
+	/**
+	 * @return the events of the i-th T-combination of the store, as chars
+	 */
+	private static String describe(TupleStore tuples, int i) {
+		char[] chars = new char[tuples.getStrength()];
+		for (int j = 0; j < chars.length; j++)
+			chars[j] = tuples.getAlphabet().symbol(tuples.event(i, j));
+		return new String(chars);
+	}
+
+	/**
+	 * Enumerates the feasible T-combinations of the source, in chunks. The last
+	 * chunk is always empty.
+	 */
+	private static void produce(CompiledDFA system, TupleSource source, boolean notSecond,
+			BlockingQueue<TupleStore> queue, AtomicReference<Throwable> error) {
+		Alphabet alphabet = source.getAlphabet();
+		int strength = source.getStrength();
+		try {
+			try {
+				FeasibilityAnalyzer analyzer = new FeasibilityAnalyzer(system);
+				int[] tuple = new int[strength];
+				TupleStore chunk = new TupleStore(alphabet, strength, notSecond, CHUNK_SIZE);
+				while (source.next(tuple)) {
+					if (!analyzer.isFeasible(tuple, notSecond))
+						continue;
+					chunk.add(tuple);
+					if (chunk.size() == CHUNK_SIZE) {
+						queue.put(chunk);
+						chunk = new TupleStore(alphabet, strength, notSecond, CHUNK_SIZE);
+					}
+				}
+				if (chunk.size() > 0)
+					queue.put(chunk);
+			} catch (RuntimeException | Error e) {
+				error.set(e);
+			}
+			queue.put(new TupleStore(alphabet, strength, notSecond, 0));
+		} catch (InterruptedException e) {
+			// The collecting has been stopped
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+
+import enums.ReparationMode;
+
+/**
+ * Computes the metrics of a test suite over the compiled automaton of the
+ * system. Every sequence is repaired only once and all the metrics are
+ * collected in the same traversal, which runs in parallel over the sequences.
+ */
+public class SuiteAnalyzer {
+
+	private final CompiledDFA system;
+	private final SequenceRepairer repairer;
+
+	/**
+	 * Instantiates a new analyzer.
+	 *
+	 * @param system     the compiled automaton of the system
+	 * @param repairMode the repair mode
+	 */
+	public SuiteAnalyzer(CompiledDFA system, ReparationMode repairMode) {
+		this.system = system;
+		this.repairer = new SequenceRepairer(system, repairMode);
+	}
+
+	/**
+	 * Computes the metrics of the sequences, without the T-combinations.
+	 *
+	 * @param sequences the sequences
+	 * @return the report
+	 */
+	public SuiteReport analyze(Collection<String> sequences) {
+		Accumulator result = collect(sequences, null, false);
+		return result.report(-1, -1, -1);
+	}
+
+	/**
+	 * Computes the metrics of the sequences, including the coverage of the packed
+	 * T-combinations. The sequences are scanned into a coverage index, so that
+	 * each of them is read only once.
+	 *
+	 * @param sequences the sequences
+	 * @param tuples    the T-combinations
+	 * @return the report
+	 */
+	public SuiteReport analyze(Collection<String> sequences, TupleStore tuples) {
+		Accumulator result = collect(sequences, tuples, false);
+		int nValid = tuples.size() - tuples.infeasible(system).cardinality();
+		return result.report(tuples.size(), nValid, tuples.covered(result.index).cardinality());
+	}
+
+	/**
+	 * Computes the metrics of the sequences, including the coverage of the given
+	 * T-combinations. The recognizers must be compiled over the alphabet of the
+	 * system.
+	 *
+	 * @param sequences the sequences
+	 * @param tuples    the T-combinations
+	 * @return the report
+	 */
+	public SuiteReport analyze(Collection<String> sequences, TupleSet tuples) {
+		Accumulator result = collect(sequences, null, true);
+		int nValid = tuples.size() - tuples.infeasible(system).cardinality();
+		TupleSet temp = tuples.copy();
+		int nCovered = 0;
+		for (int[] word : result.words) {
+			if (temp.size() == 0)
+				break;
+			nCovered += temp.removeAccepted(word);
+		}
+		return result.report(tuples.size(), nValid, nCovered);
+	}
+
+	private Accumulator collect(Collection<String> sequences, TupleStore tuples, boolean keepWords) {
+		return sequences.parallelStream().collect(() -> new Accumulator(tuples, keepWords), Accumulator::add,
+				Accumulator::merge);
+	}
+
+	/**
+	 * Partial metrics of a subset of the sequences.
+	 */
+	private class Accumulator {
+
+		private final int k = system.getAlphabet().size();
+		private final BitSet states = new BitSet(system.getNumberOfStates());
+		private final BitSet transitions = new BitSet(system.getNumberOfStates() * k);
+		private final CoverageIndex index;
+		private final ArrayList<int[]> words;
+		private int count;
+		private int maxLength;
+		private int minLength = Integer.MAX_VALUE;
+		private int totalLength;
+		private int valid;
+
+		Accumulator(TupleStore tuples, boolean keepWords) {
+			this.index = tuples != null ? new CoverageIndex(tuples) : null;
+			this.words = keepWords ? new ArrayList<>() : null;
+		}
+
+		void add(String s) {
+			count++;
+			maxLength = Math.max(maxLength, s.length());
+			minLength = Math.min(minLength, s.length());
+			totalLength += s.length();
+
+			Alphabet alphabet = system.getAlphabet();
+			String repaired = repairer.repair(s);
+			boolean accepted = system.accepts(s);
+			if (accepted)
+				valid++;
+
+			// States and transitions are covered by the repaired sequence
+			int[] word = new int[repaired.length()];
+			int state = system.initialState();
+			if (word.length > 0)
+				states.set(state);
+			for (int i = 0; i < word.length; i++) {
+				word[i] = alphabet.indexOf(repaired.charAt(i));
+				transitions.set(state * k + word[i]);
+				state = system.step(state, word[i]);
+				states.set(state);
+			}
+
+			// T-combinations are covered by the sequence itself, if it is valid
+			String fixed = accepted ? s : repaired;
+			if (index != null)
+				index.scan(fixed);
+			if (words != null)
+				words.add(accepted ? encode(s) : word);
+		}
+
+		private int[] encode(String s) {
+			int[] word = new int[s.length()];
+			for (int i = 0; i < word.length; i++)
+				word[i] = system.getAlphabet().indexOf(s.charAt(i));
+			return word;
+		}
+
+		void merge(Accumulator other) {
+			count += other.count;
+			maxLength = Math.max(maxLength, other.maxLength);
+			minLength = Math.min(minLength, other.minLength);
+			totalLength += other.totalLength;
+			valid += other.valid;
+			states.or(other.states);
+			transitions.or(other.transitions);
+			if (index != null)
+				index.merge(other.index);
+			if (words != null)
+				words.addAll(other.words);
+		}
+
+		SuiteReport report(int nTCombinations, int nValidTCombinations, int nCoveredTCombinations) {
+			return new SuiteReport(count, maxLength, count > 0 ? minLength : 0, totalLength, valid,
+					states.cardinality(), transitions.cardinality(), nTCombinations, nValidTCombinations,
+					nCoveredTCombinations);
+		}
+	}
+}
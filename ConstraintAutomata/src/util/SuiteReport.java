@@ -0,0 +1,107 @@
+package util;
+
+import enums.Length;
+
+/**
+ * Immutable report of the metrics of a test suite, computed by
+ * {@link SuiteAnalyzer}. The numbers of T-combinations are -1 when no
+ * T-combination has been given to the analyzer.
+ */
+public final class SuiteReport {
+
+	private final int numberOfSequences;
+	private final int maxLength;
+	private final int minLength;
+	private final int totalLength;
+	private final int numberOfValidSequences;
+	private final int numberOfStatesCovered;
+	private final int numberOfTransitionsCovered;
+	private final int numberOfTCombinations;
+	private final int numberOfValidTCombinations;
+	private final int numberOfTCombinationsCovered;
+
+	SuiteReport(int numberOfSequences, int maxLength, int minLength, int totalLength, int numberOfValidSequences,
+			int numberOfStatesCovered, int numberOfTransitionsCovered, int numberOfTCombinations,
+			int numberOfValidTCombinations, int numberOfTCombinationsCovered) {
+		this.numberOfSequences = numberOfSequences;
+		this.maxLength = maxLength;
+		this.minLength = minLength;
+		this.totalLength = totalLength;
+		this.numberOfValidSequences = numberOfValidSequences;
+		this.numberOfStatesCovered = numberOfStatesCovered;
+		this.numberOfTransitionsCovered = numberOfTransitionsCovered;
+		this.numberOfTCombinations = numberOfTCombinations;
+		this.numberOfValidTCombinations = numberOfValidTCombinations;
+		this.numberOfTCombinationsCovered = numberOfTCombinationsCovered;
+	}
+
+	/**
+	 * @return the number of sequences
+	 */
+	public int getNumberOfSequences() {
+		return numberOfSequences;
+	}
+
+	/**
+	 * Length of the sequences, with the same semantics of
+	 * {@link Utils#getLength(java.util.HashSet, Length)}.
+	 *
+	 * @param which the length to be returned
+	 * @return the length
+	 */
+	public int getLength(Length which) {
+		switch (which) {
+		case MAX:
+			return maxLength;
+		case MIN:
+			return minLength;
+		case AVG:
+			return numberOfSequences > 0 ? totalLength / numberOfSequences : 0;
+		case TOTAL:
+		default:
+			return totalLength;
+		}
+	}
+
+	/**
+	 * @return the number of sequences accepted by the system
+	 */
+	public int getNumberOfValidSequences() {
+		return numberOfValidSequences;
+	}
+
+	/**
+	 * @return the number of states covered by the repaired sequences
+	 */
+	public int getNumberOfStatesCovered() {
+		return numberOfStatesCovered;
+	}
+
+	/**
+	 * @return the number of transitions covered by the repaired sequences
+	 */
+	public int getNumberOfTransitionsCovered() {
+		return numberOfTransitionsCovered;
+	}
+
+	/**
+	 * @return the number of T-combinations
+	 */
+	public int getNumberOfTCombinations() {
+		return numberOfTCombinations;
+	}
+
+	/**
+	 * @return the number of T-combinations that can be covered by the system
+	 */
+	public int getNumberOfValidTCombinations() {
+		return numberOfValidTCombinations;
+	}
+
+	/**
+	 * @return the number of T-combinations covered by the sequences
+	 */
+	public int getNumberOfTCombinationsCovered() {
+		return numberOfTCombinationsCovered;
+	}
+}
@@ -0,0 +1,89 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import enums.ReparationMode;
+
+/**
+ * Reuse of the sequences generated for other products of the same family. The
+ * existing suite is replayed on the automaton of the new product: the
+ * sequences are repaired, those covering some T-combination are kept, and only
+ * the T-combinations still uncovered are left to the collecting operation.
+ * The sequences of all the products must use the same chars for the same
+ * messages.
+ */
+public class SuiteReuse {
+
+	private SuiteReuse() {
+	}
+
+	/**
+	 * Replays the existing sequences on the system, in the iteration order of
+	 * the collection, and removes the T-combinations they cover.
+	 *
+	 * @param system     the compiled automaton of the new product
+	 * @param previous   the sequences generated for the other products
+	 * @param tuples     the T-combinations of the new product; the covered ones
+	 *                   are removed
+	 * @param repairMode the repair mode of the sequences not valid for the
+	 *                   product
+	 * @return the repaired sequences covering some of the T-combinations
+	 */
+	public static ArrayList<String> reuse(CompiledDFA system, Collection<String> previous, TupleStore tuples,
+			ReparationMode repairMode) {
+		LinkedHashSet<String> kept = new LinkedHashSet<>();
+		CoverageIndex index = new CoverageIndex(tuples);
+		List<String> repaired = new SequenceRepairer(system, repairMode).repairAll(previous);
+		for (String seq : repaired) {
+			// Sequences not adding any T-combination would only make the suite longer
+			if (!seq.isEmpty() && !kept.contains(seq) && index.scan(seq) > 0)
+				kept.add(seq);
+		}
+		tuples.removeCovered(index);
+		return new ArrayList<>(kept);
+	}
+
+	/**
+	 * Orders the products so that each one shares as many transitions as
+	 * possible with the previous one, starting from the product with the most
+	 * transitions: its suite is the most likely to be valid for the others.
+	 *
+	 * @param enabled the enabled transitions of every product
+	 * @return the indexes of the products, in the order of generation
+	 */
+	public static int[] order(List<BitSet> enabled) {
+		int n = enabled.size();
+		int[] order = new int[n];
+		if (n == 0)
+			return order;
+		BitSet done = new BitSet(n);
+		int current = 0;
+		for (int p = 1; p < n; p++)
+			if (enabled.get(p).cardinality() > enabled.get(current).cardinality())
+				current = p;
+		for (int i = 0; i < n; i++) {
+			order[i] = current;
+			done.set(current);
+			// Greedily move to the most similar product (Jaccard index)
+			int best = -1;
+			double bestSimilarity = -1;
+			for (int p = done.nextClearBit(0); p < n; p = done.nextClearBit(p + 1)) {
+				BitSet common = (BitSet) enabled.get(p).clone();
+				common.and(enabled.get(current));
+				BitSet union = (BitSet) enabled.get(p).clone();
+				union.or(enabled.get(current));
+				double similarity = union.isEmpty() ? 1 : (double) common.cardinality() / union.cardinality();
+				if (similarity > bestSimilarity) {
+					best = p;
+					bestSimilarity = similarity;
+				}
+			}
+			current = best;
+		}
+		return order;
+	}
+}
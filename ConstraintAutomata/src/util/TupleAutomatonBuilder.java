@@ -0,0 +1,127 @@
+package util;
+
+import java.util.Arrays;
+
+import config.ConfigurationData;
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+/**
+ * The Class TupleAutomatonBuilder creates the automata recognizing the
+ * T-combinations directly, without compiling a regular expression for each of
+ * them. The automaton of (e1, ..., et) has t + 1 states: the state i means that
+ * the first i events have been read, it moves to the state i + 1 with the event
+ * ei+1 and stays in i with any other character. The last state is accepting and
+ * loops on every character. With NOT_SECOND, the initial state has no
+ * transition for the following events, as in the expression [^(e2|...|et)]*e1.*
+ * ...
+ *
+ * The structure of the automata (which positions of the T-combination stop the
+ * self loop of each state) depends only on the strength, so it is computed once
+ * and each automaton is obtained by filling in the events.
+ */
+public class TupleAutomatonBuilder {
+
+	private final int strength;
+	private final boolean notSecond;
+	/** stoppers[i] are the positions of the events without self loop in state i */
+	private final int[][] stoppers;
+
+	/**
+	 * Instantiates a new builder for the T-combinations of the given strength.
+	 *
+	 * @param strength  the strength of the T-combinations
+	 * @param notSecond whether the following events must not precede the first
+	 *                  one
+	 */
+	public TupleAutomatonBuilder(int strength, boolean notSecond) {
+		this.strength = strength;
+		this.notSecond = notSecond;
+		this.stoppers = new int[strength][];
+		for (int i = 0; i < strength; i++) {
+			if (notSecond && i == 0) {
+				stoppers[i] = new int[strength];
+				for (int j = 0; j < strength; j++)
+					stoppers[i][j] = j;
+			} else {
+				stoppers[i] = new int[] { i };
+			}
+		}
+	}
+
+	/**
+	 * Instantiates a new builder using {@link ConfigurationData#NOT_SECOND}.
+	 *
+	 * @param strength the strength of the T-combinations
+	 */
+	public TupleAutomatonBuilder(int strength) {
+		this(strength, ConfigurationData.NOT_SECOND);
+	}
+
+	/**
+	 * @return the strength of the T-combinations
+	 */
+	public int getStrength() {
+		return strength;
+	}
+
+	/**
+	 * @return "true" if the following events must not precede the first one
+	 */
+	public boolean isNotSecond() {
+		return notSecond;
+	}
+
+	/**
+	 * Builds the deterministic automaton recognizing the given T-combination.
+	 *
+	 * @param events the characters of the events of the T-combination
+	 * @return the automaton
+	 */
+	public Automaton build(char... events) {
+		if (events.length != strength)
+			throw new IllegalArgumentException("Expected " + strength + " events, found " + events.length);
+		State[] states = new State[strength + 1];
+		for (int i = 0; i <= strength; i++)
+			states[i] = new State();
+		states[strength].setAccept(true);
+		states[strength].addTransition(new Transition(Character.MIN_VALUE, Character.MAX_VALUE, states[strength]));
+
+		char[] stop = new char[strength];
+		for (int i = 0; i < strength; i++) {
+			states[i].addTransition(new Transition(events[i], states[i + 1]));
+			int n = stoppers[i].length;
+			for (int j = 0; j < n; j++)
+				stop[j] = events[stoppers[i][j]];
+			Arrays.sort(stop, 0, n);
+			// Self loop on the ranges between the stopping events
+			int from = Character.MIN_VALUE;
+			for (int j = 0; j < n; j++) {
+				if (stop[j] > from)
+					states[i].addTransition(new Transition((char) from, (char) (stop[j] - 1), states[i]));
+				from = Math.max(from, stop[j] + 1);
+			}
+			if (from <= Character.MAX_VALUE)
+				states[i].addTransition(new Transition((char) from, Character.MAX_VALUE, states[i]));
+		}
+
+		Automaton a = new Automaton();
+		a.setInitialState(states[0]);
+		a.setDeterministic(true);
+		return a;
+	}
+
+	/**
+	 * Builds the deterministic automaton recognizing the given T-combination.
+	 *
+	 * @param events the events of the T-combination, as strings of one character
+	 * @return the automaton
+	 */
+	public Automaton build(String... events) {
+		char[] chars = new char[events.length];
+		for (int i = 0; i < events.length; i++)
+			chars[i] = events[i].charAt(0);
+		return build(chars);
+	}
+}
@@ -0,0 +1,34 @@
+package util;
+
+/**
+ * Interface of the recognizers of the T-combinations. States and symbols are
+ * represented by integers, and the symbols are the ids given by the
+ * {@link Alphabet} of the system.
+ */
+public interface TupleRecognizer {
+
+	/**
+	 * @return the initial state
+	 */
+	int initialState();
+
+	/**
+	 * Executes a single step.
+	 *
+	 * @param state  the current state
+	 * @param symbol the id of the symbol
+	 * @return the next state, -1 if the symbol cannot be accepted
+	 */
+	int step(int state, int symbol);
+
+	/**
+	 * @param state the state
+	 * @return "true" if the state is an accepting one
+	 */
+	boolean isAccept(int state);
+
+	/**
+	 * @return the number of states of the recognizer
+	 */
+	int getNumberOfStates();
+}
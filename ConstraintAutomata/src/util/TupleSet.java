@@ -0,0 +1,51 @@
+package util;
+
+import java.util.BitSet;
+
+/**
+ * Interface of an ordered set of T-combinations still to be covered. Symbols
+ * are the ids given by the {@link Alphabet} of the system.
+ */
+public interface TupleSet {
+
+	/**
+	 * @return the number of T-combinations in the set
+	 */
+	int size();
+
+	/**
+	 * @param i the index of the T-combination
+	 * @return the recognizer of the i-th T-combination
+	 */
+	TupleRecognizer recognizer(int i);
+
+	/**
+	 * Removes the T-combinations at the given indexes, keeping the order of the
+	 * other ones.
+	 *
+	 * @param indexes the indexes of the T-combinations to be removed
+	 */
+	void removeAll(BitSet indexes);
+
+	/**
+	 * Removes all the T-combinations covered by the given sequence.
+	 *
+	 * @param word the sequence of symbol ids
+	 * @return the number of removed T-combinations
+	 */
+	int removeAccepted(int[] word);
+
+	/**
+	 * Function finding the T-combinations that cannot be covered by the given
+	 * FSM.
+	 *
+	 * @param system the compiled automaton of the FSM
+	 * @return the indexes of the infeasible T-combinations
+	 */
+	BitSet infeasible(CompiledDFA system);
+
+	/**
+	 * @return a copy of the set
+	 */
+	TupleSet copy();
+}
@@ -0,0 +1,178 @@
+package util;
+
+import com.google.common.collect.BiMap;
+
+/**
+ * Class producing the T-combinations of the events on demand, without storing
+ * them. Each T-combination has a rank: with repetitions the rank is the number
+ * written in base k by the ids of the events, without repetitions it is the
+ * number written in the mixed base (k, k - 1, ..., k - t + 1) by the positions
+ * of the events among the ones not used yet. The ranks are visited in the
+ * pseudo-random order given by a Feistel network, so that the order only
+ * depends on the seed and the memory used does not depend on the number of
+ * T-combinations.
+ */
+public class TupleSource {
+
+	private static final int ROUNDS = 4;
+
+	private final Alphabet alphabet;
+	private final int strength;
+	private final boolean allowReps;
+	private final long size;
+	private final int halfBits;
+	private final long halfMask;
+	private final long[] keys;
+	private volatile long position;
+
+	/**
+	 * Instantiates a new tuple source.
+	 *
+	 * @param alphabet  the alphabet of the events
+	 * @param strength  the strength of the T-combinations
+	 * @param allowReps allow repetitions?
+	 * @param seed      the seed of the order of the T-combinations
+	 */
+	public TupleSource(Alphabet alphabet, int strength, boolean allowReps, long seed) {
+		this.alphabet = alphabet;
+		this.strength = strength;
+		this.allowReps = allowReps;
+		int k = alphabet.size();
+		long n = 1;
+		try {
+			for (int i = 0; i < strength; i++)
+				n = Math.multiplyExact(n, (long) Math.max(allowReps ? k : k - i, 0));
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Too many " + strength + "-combinations", e);
+		}
+		this.size = n;
+		int bits = 64 - Long.numberOfLeadingZeros(Math.max(n - 1, 1));
+		this.halfBits = (bits + 1) / 2;
+		this.halfMask = (1L << halfBits) - 1;
+		this.keys = new long[ROUNDS];
+		long z = seed;
+		for (int r = 0; r < ROUNDS; r++)
+			keys[r] = mix(z += 0x9e3779b97f4a7c15L);
+	}
+
+	/**
+	 * Instantiates a new tuple source over the given messages.
+	 *
+	 * @param msgsMapping the mapping of messages in characters
+	 * @param strength    the strength
+	 * @param allowReps   allow repetitions?
+	 * @param seed        the seed of the order of the T-combinations
+	 * @return the tuple source
+	 */
+	public static TupleSource create(BiMap<String, Character> msgsMapping, int strength, Boolean allowReps,
+			long seed) {
+		return new TupleSource(Alphabet.of(msgsMapping.values()), strength, allowReps, seed);
+	}
+
+	/**
+	 * @return the alphabet of the events
+	 */
+	public Alphabet getAlphabet() {
+		return alphabet;
+	}
+
+	/**
+	 * @return the strength of the T-combinations
+	 */
+	public int getStrength() {
+		return strength;
+	}
+
+	/**
+	 * @return the total number of T-combinations
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of T-combinations already produced
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Restarts the enumeration from the first T-combination.
+	 */
+	public void reset() {
+		position = 0;
+	}
+
+	/**
+	 * Produces the next T-combination.
+	 *
+	 * @param tuple the array receiving the ids of the events
+	 * @return "false" if all the T-combinations have already been produced
+	 */
+	public boolean next(int[] tuple) {
+		if (position >= size)
+			return false;
+		unrank(permute(position++), tuple);
+		return true;
+	}
+
+	/**
+	 * Converts a rank into the corresponding T-combination.
+	 *
+	 * @param rank  the rank, in [0, size())
+	 * @param tuple the array receiving the ids of the events
+	 */
+	public void unrank(long rank, int[] tuple) {
+		int k = alphabet.size();
+		for (int i = strength - 1; i >= 0; i--) {
+			int base = allowReps ? k : k - i;
+			tuple[i] = (int) (rank % base);
+			rank /= base;
+		}
+		if (allowReps)
+			return;
+		// Each digit is the position among the events not used by the previous ones,
+		// which are kept sorted
+		int[] used = new int[strength];
+		for (int i = 0; i < strength; i++) {
+			int e = tuple[i];
+			int j = 0;
+			while (j < i && used[j] <= e) {
+				e++;
+				j++;
+			}
+			System.arraycopy(used, j, used, j + 1, i - j);
+			used[j] = e;
+			tuple[i] = e;
+		}
+	}
+
+	/**
+	 * Bijection of [0, size()) given by the Feistel network. The network permutes
+	 * the smallest range of even bits containing the indexes, and the values
+	 * falling out of [0, size()) are permuted again until they fall into it.
+	 *
+	 * @param index the index
+	 * @return the permuted index
+	 */
+	public long permute(long index) {
+		long x = index;
+		do {
+			long left = x >>> halfBits, right = x & halfMask;
+			for (int r = 0; r < ROUNDS; r++) {
+				long tmp = right;
+				right = left ^ (mix(right ^ keys[r]) & halfMask);
+				left = tmp;
+			}
+			x = (left << halfBits) | right;
+		} while (x >= size);
+		return x;
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return z ^ (z >>> 33);
+	}
+}
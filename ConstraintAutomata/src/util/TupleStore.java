@@ -0,0 +1,351 @@
+package util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import com.google.common.collect.BiMap;
+
+import config.ConfigurationData;
+
+/**
+ * Class storing the T-combinations to be covered in a packed form: each
+ * T-combination is represented only by the ids of its events, stored in a
+ * single array of integers. The recognizers are created only when needed, while
+ * the T-combinations covered by a sequence are found through a
+ * {@link CoverageIndex}.
+ */
+public class TupleStore implements TupleSet {
+
+	private final Alphabet alphabet;
+	private final int strength;
+	private final boolean notSecond;
+	private int size;
+	private int[] events;
+
+	/**
+	 * Instantiates a new, empty, tuple store.
+	 *
+	 * @param alphabet  the alphabet of the events
+	 * @param strength  the strength of the T-combinations
+	 * @param notSecond whether the following events must not precede the first
+	 *                  one (see {@link ConfigurationData#NOT_SECOND})
+	 * @param capacity  the initial capacity
+	 */
+	public TupleStore(Alphabet alphabet, int strength, boolean notSecond, int capacity) {
+		this.alphabet = alphabet;
+		this.strength = strength;
+		this.notSecond = notSecond;
+		this.events = new int[Math.max(capacity, 1) * strength];
+	}
+
+	/**
+	 * Function that builds all the T-combinations of the messages, in random
+	 * order.
+	 *
+	 * @param msgsMapping the mapping of messages in characters
+	 * @param strength    the strength
+	 * @param allowReps   allow repetitions?
+	 * @return the store containing all the T-combinations
+	 */
+	public static TupleStore create(BiMap<String, Character> msgsMapping, int strength, Boolean allowReps) {
+		return create(msgsMapping, strength, allowReps, new Random());
+	}
+
+	/**
+	 * Function that builds all the T-combinations of the messages, in the order
+	 * given by the random generator.
+	 *
+	 * @param msgsMapping the mapping of messages in characters
+	 * @param strength    the strength
+	 * @param allowReps   allow repetitions?
+	 * @param random      the random generator used to sort the T-combinations
+	 * @return the store containing all the T-combinations
+	 */
+	public static TupleStore create(BiMap<String, Character> msgsMapping, int strength, Boolean allowReps,
+			Random random) {
+		Alphabet alphabet = Alphabet.of(msgsMapping.values());
+		int k = alphabet.size();
+		long count = 1;
+		for (int i = 0; i < strength; i++)
+			count *= allowReps ? k : k - i;
+		if (count * strength > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many " + strength + "-combinations: " + count);
+
+		TupleStore store = new TupleStore(alphabet, strength, ConfigurationData.NOT_SECOND, (int) Math.max(count, 0));
+		int[] tuple = new int[strength];
+		while (k > 0) {
+			if (allowReps || isWithoutReps(tuple))
+				store.add(tuple);
+			int p = strength - 1;
+			while (p >= 0 && ++tuple[p] == k) {
+				tuple[p] = 0;
+				p--;
+			}
+			if (p < 0)
+				break;
+		}
+
+		// Random sort has proved to be more efficient in terms of duration of the
+		// collecting operation
+		store.shuffle(random);
+		return store;
+	}
+
+	private static boolean isWithoutReps(int[] tuple) {
+		for (int i = 0; i < tuple.length; i++)
+			for (int j = i + 1; j < tuple.length; j++)
+				if (tuple[i] == tuple[j])
+					return false;
+		return true;
+	}
+
+	/**
+	 * Adds a T-combination.
+	 *
+	 * @param tuple the ids of the events of the T-combination
+	 */
+	public void add(int... tuple) {
+		if ((size + 1) * strength > events.length)
+			events = Arrays.copyOf(events, Math.max(events.length * 2, (size + 1) * strength));
+		System.arraycopy(tuple, 0, events, size * strength, strength);
+		size++;
+	}
+
+	/**
+	 * Appends all the T-combinations of another store of the same strength.
+	 *
+	 * @param other the other store
+	 */
+	public void addAll(TupleStore other) {
+		if ((size + other.size) * strength > events.length)
+			events = Arrays.copyOf(events, Math.max(events.length * 2, (size + other.size) * strength));
+		System.arraycopy(other.events, 0, events, size * strength, other.size * strength);
+		size += other.size;
+	}
+
+	/**
+	 * Sorts randomly the T-combinations.
+	 *
+	 * @param random the random generator
+	 */
+	public void shuffle(Random random) {
+		int[] tmp = new int[strength];
+		for (int i = size - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			System.arraycopy(events, i * strength, tmp, 0, strength);
+			System.arraycopy(events, j * strength, events, i * strength, strength);
+			System.arraycopy(tmp, 0, events, j * strength, strength);
+		}
+	}
+
+	/**
+	 * Sorts the T-combinations in lexicographic order of the ids of their events,
+	 * which is the order in which {@link #create(BiMap, int, Boolean, Random)}
+	 * builds them before shuffling.
+	 */
+	public void sort() {
+		int[] codes = new int[size];
+		for (int i = 0; i < size; i++)
+			codes[i] = code(i);
+		Arrays.sort(codes);
+		int k = alphabet.size();
+		for (int i = 0; i < size; i++) {
+			int code = codes[i];
+			for (int j = strength - 1; j >= 0; j--) {
+				events[i * strength + j] = code % k;
+				code /= k;
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the strength of the T-combinations
+	 */
+	public int getStrength() {
+		return strength;
+	}
+
+	/**
+	 * @return the alphabet of the events
+	 */
+	public Alphabet getAlphabet() {
+		return alphabet;
+	}
+
+	/**
+	 * @return "true" if the following events must not precede the first one
+	 */
+	public boolean isNotSecond() {
+		return notSecond;
+	}
+
+	/**
+	 * @param i the index of the T-combination
+	 * @param j the position of the event in the T-combination
+	 * @return the id of the j-th event of the i-th T-combination
+	 */
+	public int event(int i, int j) {
+		return events[i * strength + j];
+	}
+
+	/**
+	 * @param i the index of the T-combination
+	 * @return the code of the i-th T-combination, as defined by
+	 *         {@link CoverageIndex}
+	 */
+	public int code(int i) {
+		int k = alphabet.size();
+		int code = 0;
+		for (int j = 0; j < strength; j++)
+			code = code * k + events[i * strength + j];
+		return code;
+	}
+
+	@Override
+	public TupleRecognizer recognizer(int i) {
+		return new Recognizer(Arrays.copyOfRange(events, i * strength, (i + 1) * strength), notSecond);
+	}
+
+	@Override
+	public void removeAll(BitSet indexes) {
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			if (!indexes.get(i)) {
+				if (n != i)
+					System.arraycopy(events, i * strength, events, n * strength, strength);
+				n++;
+			}
+		}
+		size = n;
+	}
+
+	@Override
+	public int removeAccepted(int[] word) {
+		BitSet accepted = accepted(word);
+		removeAll(accepted);
+		return accepted.cardinality();
+	}
+
+	/**
+	 * Removes all the T-combinations covered by the given sequence.
+	 *
+	 * @param sequence the sequence of characters
+	 * @return the number of removed T-combinations
+	 */
+	public int removeAccepted(String sequence) {
+		return removeAccepted(encode(sequence));
+	}
+
+	@Override
+	public BitSet infeasible(CompiledDFA system) {
+		return new FeasibilityAnalyzer(system).infeasible(this);
+	}
+
+	@Override
+	public TupleStore copy() {
+		TupleStore copy = new TupleStore(alphabet, strength, notSecond, 0);
+		copy.events = Arrays.copyOf(events, size * strength);
+		copy.size = size;
+		return copy;
+	}
+
+	/**
+	 * Converts a sequence of characters into the ids of the symbols. Characters not
+	 * belonging to the alphabet are mapped to -1.
+	 *
+	 * @param sequence the sequence of characters
+	 * @return the sequence of symbol ids
+	 */
+	public int[] encode(String sequence) {
+		int[] word = new int[sequence.length()];
+		for (int i = 0; i < word.length; i++)
+			word[i] = alphabet.indexOf(sequence.charAt(i));
+		return word;
+	}
+
+	/**
+	 * Executes all the T-combinations over the given sequence, scanning it only
+	 * once with a {@link CoverageIndex}.
+	 *
+	 * @param word the sequence of symbol ids
+	 * @return the indexes of the T-combinations covered by the sequence
+	 */
+	public BitSet accepted(int[] word) {
+		CoverageIndex index = new CoverageIndex(this);
+		index.scan(word, null);
+		return covered(index);
+	}
+
+	/**
+	 * @param index the coverage index
+	 * @return the indexes of the T-combinations marked as covered in the index
+	 */
+	public BitSet covered(CoverageIndex index) {
+		BitSet result = new BitSet(size);
+		for (int i = 0; i < size; i++)
+			if (index.isCovered(code(i)))
+				result.set(i);
+		return result;
+	}
+
+	/**
+	 * Removes all the T-combinations marked as covered in the given index.
+	 *
+	 * @param index the coverage index
+	 * @return the number of removed T-combinations
+	 */
+	public int removeCovered(CoverageIndex index) {
+		BitSet covered = covered(index);
+		removeAll(covered);
+		return covered.cardinality();
+	}
+
+	/**
+	 * Recognizer of a single T-combination: the state is the number of events
+	 * already read.
+	 */
+	private static class Recognizer implements TupleRecognizer {
+
+		private final int[] tuple;
+		private final boolean notSecond;
+
+		Recognizer(int[] tuple, boolean notSecond) {
+			this.tuple = tuple;
+			this.notSecond = notSecond;
+		}
+
+		@Override
+		public int initialState() {
+			return 0;
+		}
+
+		@Override
+		public int step(int state, int symbol) {
+			if (state == tuple.length)
+				return state;
+			if (symbol == tuple[state])
+				return state + 1;
+			if (notSecond && state == 0)
+				for (int j = 1; j < tuple.length; j++)
+					if (symbol == tuple[j])
+						return -1;
+			return state;
+		}
+
+		@Override
+		public boolean isAccept(int state) {
+			return state == tuple.length;
+		}
+
+		@Override
+		public int getNumberOfStates() {
+			return tuple.length + 1;
+		}
+	}
+}
@@ -5,23 +5,16 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.io.UncheckedIOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
-import org.jgrapht.Graph;
-import org.jgrapht.GraphPath;
-import org.jgrapht.GraphTests;
-import org.jgrapht.alg.cycle.ChinesePostman;
-import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
-import org.jgrapht.alg.tour.HeldKarpTSP;
-import org.jgrapht.nio.dot.DOTExporter;
 
 import com.google.common.collect.BiMap;
 
@@ -86,51 +79,180 @@ public class Utils {
 	 * @param fullSystemAutomaton the full system automaton
 	 * @param startTime the start time
 	 * @param sequences the sequences
+	 * @return the report written in the result file
 	 */
-	public static void extractStatistics(int strength, boolean useMonitoring, Mode generationMode,
+	public static SuiteReport extractStatistics(int strength, boolean useMonitoring, Mode generationMode,
 			ReparationMode repairMode, int automataPerBatch, String resultFile, BiMap<String, Character> msgsMapping,
 			ArrayList<Automaton> automatonListForTRecognition, Automaton fullSystemAutomaton, float time, HashSet<String> sequences) {
-		FileWriter fout;
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton, Alphabet.of(msgsMapping.values()));
+		SuiteReport report = new SuiteAnalyzer(system, repairMode).analyze(sequences,
+				RecognizerList.of(automatonListForTRecognition, system.getAlphabet()));
+		writeStatistics(strength, useMonitoring, generationMode, repairMode, automataPerBatch, resultFile, msgsMapping,
+				fullSystemAutomaton, time, report);
+		return report;
+	}
+
+	/**
+	 * Extract statistics, using the packed T-combinations.
+	 *
+	 * @param strength the strength
+	 * @param useMonitoring the use monitoring
+	 * @param generationMode the generation mode
+	 * @param repairMode the repair mode
+	 * @param automataPerBatch the automata per batch
+	 * @param resultFile the result file
+	 * @param msgsMapping the msgs mapping
+	 * @param tuples the T-combinations to be covered
+	 * @param fullSystemAutomaton the full system automaton
+	 * @param time the generation time
+	 * @param sequences the sequences
+	 * @return the report written in the result file
+	 */
+	public static SuiteReport extractStatistics(int strength, boolean useMonitoring, Mode generationMode,
+			ReparationMode repairMode, int automataPerBatch, String resultFile, BiMap<String, Character> msgsMapping,
+			TupleStore tuples, Automaton fullSystemAutomaton, float time, HashSet<String> sequences) {
+		return extractStatistics(strength, useMonitoring, generationMode, repairMode, automataPerBatch, resultFile,
+				msgsMapping, tuples, fullSystemAutomaton, time, sequences, null);
+	}
+
+	/**
+	 * Extract statistics, using the packed T-combinations, and write them through
+	 * the given sink.
+	 *
+	 * @param strength the strength
+	 * @param useMonitoring the use monitoring
+	 * @param generationMode the generation mode
+	 * @param repairMode the repair mode
+	 * @param automataPerBatch the automata per batch
+	 * @param resultFile the result file
+	 * @param msgsMapping the msgs mapping
+	 * @param tuples the T-combinations to be covered
+	 * @param fullSystemAutomaton the full system automaton
+	 * @param time the generation time
+	 * @param sequences the sequences
+	 * @param sink the sink writing the result file, null to write it directly
+	 * @return the report written in the result file
+	 */
+	public static SuiteReport extractStatistics(int strength, boolean useMonitoring, Mode generationMode,
+			ReparationMode repairMode, int automataPerBatch, String resultFile, BiMap<String, Character> msgsMapping,
+			TupleStore tuples, Automaton fullSystemAutomaton, float time, HashSet<String> sequences,
+			ResultSink sink) {
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton, tuples.getAlphabet());
+		SuiteReport report = new SuiteAnalyzer(system, repairMode).analyze(sequences, tuples);
+		writeStatistics(strength, useMonitoring, generationMode, repairMode, automataPerBatch, resultFile, msgsMapping,
+				fullSystemAutomaton, time, report, sink);
+		return report;
+	}
+
+	/**
+	 * Extract statistics of a suite collected from a source of T-combinations.
+	 * The T-combinations are not stored, so their coverage is not computed.
+	 *
+	 * @param strength the strength
+	 * @param useMonitoring the use monitoring
+	 * @param generationMode the generation mode
+	 * @param repairMode the repair mode
+	 * @param automataPerBatch the automata per batch
+	 * @param resultFile the result file
+	 * @param msgsMapping the msgs mapping
+	 * @param source the source of the T-combinations
+	 * @param fullSystemAutomaton the full system automaton
+	 * @param time the generation time
+	 * @param sequences the sequences
+	 * @return the report written in the result file
+	 */
+	public static SuiteReport extractStatistics(int strength, boolean useMonitoring, Mode generationMode,
+			ReparationMode repairMode, int automataPerBatch, String resultFile, BiMap<String, Character> msgsMapping,
+			TupleSource source, Automaton fullSystemAutomaton, float time, HashSet<String> sequences) {
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton, source.getAlphabet());
+		SuiteReport report = new SuiteAnalyzer(system, repairMode).analyze(sequences);
+		writeStatistics(strength, useMonitoring, generationMode, repairMode, automataPerBatch, resultFile, msgsMapping,
+				fullSystemAutomaton, time, report);
+		return report;
+	}
+
+	/**
+	 * Writes the statistics of a suite already analyzed in the result file.
+	 *
+	 * @param strength the strength
+	 * @param useMonitoring the use monitoring
+	 * @param generationMode the generation mode
+	 * @param repairMode the repair mode
+	 * @param automataPerBatch the automata per batch
+	 * @param resultFile the result file
+	 * @param msgsMapping the msgs mapping
+	 * @param fullSystemAutomaton the full system automaton
+	 * @param time the generation time
+	 * @param report the report of the suite
+	 */
+	public static void writeStatistics(int strength, boolean useMonitoring, Mode generationMode,
+			ReparationMode repairMode, int automataPerBatch, String resultFile, BiMap<String, Character> msgsMapping,
+			Automaton fullSystemAutomaton, float time, SuiteReport report) {
+		writeStatistics(strength, useMonitoring, generationMode, repairMode, automataPerBatch, resultFile, msgsMapping,
+				fullSystemAutomaton, time, report, null);
+	}
+
+	/**
+	 * Writes the statistics of a suite already analyzed in the result file,
+	 * through the given sink.
+	 *
+	 * @param strength the strength
+	 * @param useMonitoring the use monitoring
+	 * @param generationMode the generation mode
+	 * @param repairMode the repair mode
+	 * @param automataPerBatch the automata per batch
+	 * @param resultFile the result file
+	 * @param msgsMapping the msgs mapping
+	 * @param fullSystemAutomaton the full system automaton
+	 * @param time the generation time
+	 * @param report the report of the suite
+	 * @param sink the sink writing the file, null to write it directly
+	 */
+	public static void writeStatistics(int strength, boolean useMonitoring, Mode generationMode,
+			ReparationMode repairMode, int automataPerBatch, String resultFile, BiMap<String, Character> msgsMapping,
+			Automaton fullSystemAutomaton, float time, SuiteReport report, ResultSink sink) {
+		StringBuilder fout = new StringBuilder();
+		fout.append("==SUMMARY DATA==\n\n");
+		fout.append("Sequence generation method: " + generationMode.toString() + "\n");
+		fout.append("Sequence repairing method: "
+				+ (generationMode == Mode.STANDARD_CIT ? repairMode.toString() : "NONE") + "\n");
+		fout.append("Monitoring enabled: " + useMonitoring + "\n");
+		fout.append("-----");
+		fout.append("Automatons per batch: " + automataPerBatch + "\n");
+		fout.append("Total number of transitions: " + fullSystemAutomaton.getNumberOfTransitions() + "\n");
+		fout.append("Total number of states: " + fullSystemAutomaton.getNumberOfStates() + "\n");
+		fout.append("Total number of events: "
+				+ (msgsMapping.containsKey("NO RESPONSE") ? msgsMapping.size() - 1 : msgsMapping.size()) + "\n");
+		fout.append("Total number of " + tCombinations(strength) + ": "
+				+ report.getNumberOfTCombinations() + "\n");
+		fout.append("Total number of valid " + tCombinations(strength) + ": "
+				+ report.getNumberOfValidTCombinations() + "\n");
+		fout.append("-----");
+		fout.append("Number of sequences: " + report.getNumberOfSequences() + "\n");
+		fout.append("Max sequence length: " + report.getLength(Length.MAX) + "\n");
+		fout.append("Min sequence length: " + report.getLength(Length.MIN) + "\n");
+		fout.append("Avg sequence length: " + report.getLength(Length.AVG) + "\n");
+		fout.append("Total sequence length: " + report.getLength(Length.TOTAL) + "\n");
+		fout.append("Number of valid sequences: " + report.getNumberOfValidSequences() + "\n");
+		fout.append("Number of covered " + tCombinations(strength) + ": "
+				+ report.getNumberOfTCombinationsCovered() + "\n");
+		fout.append("Number of covered states: " + report.getNumberOfStatesCovered() + "\n");
+		fout.append("Number of covered transitions: " + report.getNumberOfTransitionsCovered() + "\n");
+		fout.append("Generation time [s]: " + time);
 		try {
-			fout = new FileWriter(new File(resultFile).getAbsolutePath(), false);
-			fout.write("==SUMMARY DATA==\n\n");
-			fout.write("Sequence generation method: " + generationMode.toString() + "\n");
-			fout.write("Sequence repairing method: "
-					+ (generationMode == Mode.STANDARD_CIT ? repairMode.toString() : "NONE") + "\n");
-			fout.write("Monitoring enabled: " + useMonitoring + "\n");
-			fout.write("-----");
-			fout.write("Automatons per batch: " + automataPerBatch + "\n");
-			fout.write("Total number of transitions: " + fullSystemAutomaton.getNumberOfTransitions() + "\n");
-			fout.write("Total number of states: " + fullSystemAutomaton.getNumberOfStates() + "\n");
-			fout.write("Total number of events: "
-					+ (msgsMapping.containsKey("NO RESPONSE") ? msgsMapping.size() - 1 : msgsMapping.size()) + "\n");
-			fout.write("Total number of " + ((strength == 2) ? "pairs" : "triads") + ": "
-					+ automatonListForTRecognition.size() + "\n");
-			fout.write("Total number of valid " + ((strength == 2) ? "pairs" : "triads") + ": "
-					+ Utils.getNumberOfValidTCombinations(automatonListForTRecognition, fullSystemAutomaton) + "\n");
-			fout.write("-----");
-			fout.write("Number of sequences: " + sequences.size() + "\n");
-			fout.write("Max sequence length: " + Utils.getLength(sequences, Length.MAX) + "\n");
-			fout.write("Min sequence length: " + Utils.getLength(sequences, Length.MIN) + "\n");
-			fout.write("Avg sequence length: " + Utils.getLength(sequences, Length.AVG) + "\n");
-			fout.write("Total sequence length: " + Utils.getLength(sequences, Length.TOTAL) + "\n");
-			fout.write("Number of valid sequences: " + Utils.getNumberOfValidSequences(sequences, fullSystemAutomaton)
-					+ "\n");
-			fout.write("Number of covered " + ((strength == 2) ? "pairs" : "triads") + ": "
-					+ Utils.getNumberOfTCombinationCovered(sequences, automatonListForTRecognition, fullSystemAutomaton,
-							repairMode)
-					+ "\n");
-			fout.write("Number of covered states: "
-					+ Utils.getNumberOfStatesCovered(sequences, fullSystemAutomaton, repairMode) + "\n");
-			fout.write("Number of covered transitions: "
-					+ Utils.getNumberOfTransitionsCovered(sequences, fullSystemAutomaton, repairMode) + "\n");
-			fout.write("Generation time [s]: " + time);
-			fout.close();
+			writeFile(resultFile, fout.toString(), false, sink);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * @return the name of the T-combinations of the given strength
+	 */
+	private static String tCombinations(int strength) {
+		return strength == 2 ? "pairs" : strength == 3 ? "triads" : strength + "-combinations";
+	}
+
 	/**
 	 * Function that builds the couples of the messages, for pairwise testing.
 	 *
@@ -141,6 +263,21 @@ public class Utils {
 	 */
 	public static ArrayList<MsgPair<String, String>> getMsgCouples(BiMap<String, Character> msgsMapping,
 			Boolean allowReps) {
+		return getMsgCouples(msgsMapping, allowReps, new Random());
+	}
+
+	/**
+	 * Function that builds the couples of the messages, for pairwise testing, in
+	 * the order given by the random generator.
+	 *
+	 * @param msgsMapping the mapping of messages in characters
+	 * @param allowReps   allow repetitions?
+	 * @param random      the random generator used to sort the couples
+	 * @return the list containing the couples of the possible messages, for
+	 *         pairwise testing
+	 */
+	public static ArrayList<MsgPair<String, String>> getMsgCouples(BiMap<String, Character> msgsMapping,
+			Boolean allowReps, Random random) {
 		ArrayList<MsgPair<String, String>> msgCouples = new ArrayList<>();
 		/*
 		 * Double "for" cycle, to build all the possible couples
@@ -156,7 +293,7 @@ public class Utils {
 
 		// Random sort has proved to be more efficient in terms of duration of the
 		// collecting operation
-		Collections.shuffle(msgCouples);
+		Collections.shuffle(msgCouples, random);
 		return msgCouples;
 	}
 
@@ -170,6 +307,21 @@ public class Utils {
 	 */
 	public static ArrayList<MsgTriad<String, String, String>> getMsgTriads(BiMap<String, Character> msgsMapping,
 			Boolean allowReps) {
+		return getMsgTriads(msgsMapping, allowReps, new Random());
+	}
+
+	/**
+	 * Function that builds the triads of the messages, for 3-wise testing, in the
+	 * order given by the random generator.
+	 *
+	 * @param msgsMapping the mapping of messages in characters
+	 * @param allowReps   allow repetitions?
+	 * @param random      the random generator used to sort the triads
+	 * @return the list containing the triads of the possible messages, for 3-wise
+	 *         testing
+	 */
+	public static ArrayList<MsgTriad<String, String, String>> getMsgTriads(BiMap<String, Character> msgsMapping,
+			Boolean allowReps, Random random) {
 		ArrayList<MsgTriad<String, String, String>> msgTriads = new ArrayList<>();
 		/*
 		 * Double "for" cycle, to build all the possible couples
@@ -189,13 +341,14 @@ public class Utils {
 
 		// Random sort has proved to be more efficient in terms of duration of the
 		// collecting operation
-		Collections.shuffle(msgTriads);
+		Collections.shuffle(msgTriads, random);
 		return msgTriads;
 	}
 
 	/**
 	 * Function that loads the SCAs and returns the sequences mapped with letters
-	 * instead of numbers.
+	 * instead of numbers. To avoid keeping all the sequences in memory, use
+	 * {@link SCALoader#load(BiMap, String, java.util.function.Consumer)}.
 	 *
 	 * @param msgsMapping the map mapping each message on a single character
 	 * @param scaFilePath the path of the file containing sequence covering arrays
@@ -206,33 +359,8 @@ public class Utils {
 	 */
 	public static HashSet<String> mapSCAIntoString(BiMap<String, Character> msgsMapping, String scaFilePath)
 			throws IOException {
-		String readLn;
-		File f = new File(scaFilePath);
-		FileReader fin = new FileReader(f.getAbsolutePath());
-		BufferedReader scaFile = new BufferedReader(fin);
 		HashSet<String> msgList = new HashSet<>();
-
-		/*
-		 * Read the content of the file, and convert the indexes into messages
-		 */
-		while (true) {
-			readLn = null;
-			try {
-				readLn = scaFile.readLine();
-			} catch (IOException e) {
-				break;
-			}
-			if (readLn == null)
-				break;
-			String seq = "";
-			for (String index : readLn.split(",")) {
-				seq = seq + msgsMapping.values().toArray()[Integer.parseInt(index)];
-			}
-			msgList.add(seq);
-		}
-
-		scaFile.close();
-
+		SCALoader.load(msgsMapping, scaFilePath, msgList::add);
 		return msgList;
 	}
 
@@ -269,13 +397,22 @@ public class Utils {
 	 * @param stringToBeRecognized the string to be recognized
 	 */
 	public static void monitoring(ArrayList<Automaton> automatonList, String stringToBeRecognized) {
-		@SuppressWarnings("unchecked")
-		ArrayList<Automaton> list = (ArrayList<Automaton>) automatonList.clone();
-		for (Automaton a : automatonList) {
-			if (a.run(stringToBeRecognized))
-				list.remove(a);
-		}
-		automatonList = list;
+		// The list must be modified in place, otherwise the caller would not see the
+		// removed automata
+		automatonList.removeIf(a -> a.run(stringToBeRecognized));
+	}
+
+	/**
+	 * Function executing the MONITORING Procedure on the packed T-combinations:
+	 * the ones already covered by the given string are removed.
+	 *
+	 * @param tuples               the T-combinations still to be covered
+	 * @param stringToBeRecognized the string to be recognized
+	 */
+	public static void monitoring(TupleStore tuples, String stringToBeRecognized) {
+		CoverageIndex index = new CoverageIndex(tuples);
+		index.scan(stringToBeRecognized);
+		tuples.removeCovered(index);
 	}
 
 	/**
@@ -352,6 +489,89 @@ public class Utils {
 		return stringList;
 	}
 
+	/**
+	 * Collecting operation working on the packed T-combinations. The product
+	 * with the FSM is explored on the fly by {@link OnTheFlyCollector}, or by
+	 * {@link ParallelCollector} when more than one thread is configured in
+	 * {@link ConfigurationData#COLLECTING_THREADS}. When more than one run is
+	 * configured in {@link ConfigurationData#PORTFOLIO_RUNS}, the best suite of
+	 * {@link PortfolioCollector} is returned instead.
+	 *
+	 * @param fullSystemAutomaton    : automaton representing the FSM - Full System
+	 * @param tuples                 the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the n max states
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @return the list of the test strings
+	 */
+	public static ArrayList<String> collecting(Automaton fullSystemAutomaton, TupleStore tuples,
+			Boolean useMonitoring, int nMaxStates, int nMaxAutomatonsPerBatch) {
+		if (ConfigurationData.PORTFOLIO_RUNS > 1)
+			return PortfolioCollector.collecting(fullSystemAutomaton, tuples, useMonitoring, nMaxStates,
+					nMaxAutomatonsPerBatch, ConfigurationData.PORTFOLIO_RUNS, ConfigurationData.PORTFOLIO_SEED,
+					ConfigurationData.PORTFOLIO_TIME_BUDGET, ConfigurationData.PORTFOLIO_OBJECTIVE).getSequences();
+		if (ConfigurationData.COLLECTING_THREADS > 1)
+			return ParallelCollector.collecting(fullSystemAutomaton, tuples, useMonitoring, nMaxStates,
+					nMaxAutomatonsPerBatch, ConfigurationData.COLLECTING_THREADS);
+		return OnTheFlyCollector.collecting(fullSystemAutomaton, tuples, useMonitoring, nMaxStates,
+				nMaxAutomatonsPerBatch);
+	}
+
+	/**
+	 * Collecting operation reading the T-combinations from a source, so that they
+	 * are never all in memory. The T-combinations are prepared by a background
+	 * thread while the sequences are generated by {@link StreamingCollector}.
+	 *
+	 * @param fullSystemAutomaton    : automaton representing the FSM - Full System
+	 * @param source                 the source of the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the n max states
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @return the list of the test strings
+	 */
+	public static ArrayList<String> collecting(Automaton fullSystemAutomaton, TupleSource source,
+			Boolean useMonitoring, int nMaxStates, int nMaxAutomatonsPerBatch) {
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton, source.getAlphabet());
+		return StreamingCollector.collecting(system, source, ConfigurationData.NOT_SECOND, useMonitoring,
+				nMaxStates, nMaxAutomatonsPerBatch, ConfigurationData.STREAMING_WINDOW);
+	}
+
+	/**
+	 * Collecting operation publishing the sequences together with the coverage
+	 * counters, and stopping cleanly when the token is cancelled. The collector
+	 * is chosen as in
+	 * {@link #collecting(Automaton, TupleStore, Boolean, int, int)}: the
+	 * sequential and the parallel ones publish every sequence as soon as it is
+	 * generated, while the portfolio publishes the winning suite once all its
+	 * runs are over.
+	 *
+	 * @param fullSystemAutomaton    : automaton representing the FSM - Full System
+	 * @param tuples                 the T-combinations to be covered
+	 * @param useMonitoring          the use monitoring
+	 * @param nMaxStates             the n max states
+	 * @param nMaxAutomatonsPerBatch the n max automatons per batch
+	 * @param listener               the listener of the sequences, may be null
+	 * @param token                  the token stopping the collecting, may be
+	 *                               null
+	 * @return the list of the test strings, partial if the token has been
+	 *         cancelled
+	 */
+	public static ArrayList<String> collecting(Automaton fullSystemAutomaton, TupleStore tuples,
+			Boolean useMonitoring, int nMaxStates, int nMaxAutomatonsPerBatch, CollectingListener listener,
+			CancellationToken token) {
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton, tuples.getAlphabet());
+		if (ConfigurationData.PORTFOLIO_RUNS > 1)
+			return PortfolioCollector.collecting(system, tuples, useMonitoring, nMaxStates, nMaxAutomatonsPerBatch,
+					ConfigurationData.PORTFOLIO_RUNS, ConfigurationData.PORTFOLIO_SEED,
+					ConfigurationData.PORTFOLIO_TIME_BUDGET, ConfigurationData.PORTFOLIO_OBJECTIVE, listener, token)
+					.getSequences();
+		if (ConfigurationData.COLLECTING_THREADS > 1)
+			return ParallelCollector.collecting(system, tuples, useMonitoring, nMaxStates, nMaxAutomatonsPerBatch,
+					ConfigurationData.COLLECTING_THREADS, listener, token);
+		return OnTheFlyCollector.collecting(system, tuples, useMonitoring, nMaxStates, nMaxAutomatonsPerBatch,
+				listener, token);
+	}
+
 	/**
 	 * Max/Min/Avg length in a set of sequences.
 	 *
@@ -411,9 +631,20 @@ public class Utils {
 	 * @return the number of accepted sequences
 	 */
 	public static int getNumberOfValidSequences(HashSet<String> seq, Automaton full) {
+		return getNumberOfValidSequences(seq, CompiledDFA.compile(full));
+	}
+
+	/**
+	 * Number of valid sequences, using the compiled automaton of the system.
+	 *
+	 * @param seq    the set of sequences
+	 * @param system the compiled automaton of the system
+	 * @return the number of accepted sequences
+	 */
+	public static int getNumberOfValidSequences(HashSet<String> seq, CompiledDFA system) {
 		int num = 0;
 		for (String s : seq) {
-			if (full.run(s))
+			if (system.accepts(s))
 				num++;
 		}
 		return num;
@@ -428,25 +659,40 @@ public class Utils {
 	 * @return the number of states covered
 	 */
 	public static int getNumberOfStatesCovered(HashSet<String> seq, Automaton full, ReparationMode repairMode) {
-		HashSet<Integer> statesVisited = new HashSet<Integer>();
+		return getNumberOfStatesCovered(seq, CompiledDFA.compile(full), repairMode);
+	}
+
+	/**
+	 * Number of states covered by the set of sequences, using the compiled
+	 * automaton of the system. States are identified by their ids, so the result
+	 * does not depend on the hash codes of the states.
+	 *
+	 * @param seq        the set of sequences
+	 * @param system     the compiled automaton of the system
+	 * @param repairMode the repair mode
+	 * @return the number of states covered
+	 */
+	public static int getNumberOfStatesCovered(HashSet<String> seq, CompiledDFA system, ReparationMode repairMode) {
+		Alphabet alphabet = system.getAlphabet();
+		BitSet statesVisited = new BitSet(system.getNumberOfStates());
 		for (String s : seq) {
-			String repairedString = repairSequence(s, full, repairMode);
+			String repairedString = repairSequence(s, system, repairMode);
 			if (repairedString.length() > 0) {
-				State initialState = full.getInitialState();
-				statesVisited.add(initialState.hashCode());
-				for (char c : repairedString.toCharArray()) {
-					initialState = initialState.step(c);
-					statesVisited.add(initialState.hashCode());
+				int state = system.initialState();
+				statesVisited.set(state);
+				for (int i = 0; i < repairedString.length(); i++) {
+					state = system.step(state, alphabet.indexOf(repairedString.charAt(i)));
+					statesVisited.set(state);
 				}
 			}
 		}
 
 		// Debug code
 		System.out.println("\nCovered States: ");
-		for (Integer i : statesVisited)
-			System.out.println(i.toString() + " ");
+		for (int i = statesVisited.nextSetBit(0); i >= 0; i = statesVisited.nextSetBit(i + 1))
+			System.out.println(i + " ");
 
-		return statesVisited.size();
+		return statesVisited.cardinality();
 	}
 
 	/**
@@ -458,34 +704,41 @@ public class Utils {
 	 * @return the number of transitions covered
 	 */
 	public static int getNumberOfTransitionsCovered(HashSet<String> seq, Automaton full, ReparationMode repairMode) {
-		HashSet<MsgPairExtended<Integer, Integer, Character>> transitionsCovered = new HashSet<MsgPairExtended<Integer, Integer, Character>>();
+		return getNumberOfTransitionsCovered(seq, CompiledDFA.compile(full), repairMode);
+	}
+
+	/**
+	 * Number of transitions covered by the set of sequences, using the compiled
+	 * automaton of the system. Since the automaton is deterministic, a transition
+	 * is identified by its source state and its symbol.
+	 *
+	 * @param seq        the set of sequences
+	 * @param system     the compiled automaton of the system
+	 * @param repairMode the repair mode
+	 * @return the number of transitions covered
+	 */
+	public static int getNumberOfTransitionsCovered(HashSet<String> seq, CompiledDFA system,
+			ReparationMode repairMode) {
+		Alphabet alphabet = system.getAlphabet();
+		int k = alphabet.size();
+		BitSet transitionsCovered = new BitSet(system.getNumberOfStates() * k);
 
 		for (String s : seq) {
-			String repairedString = repairSequence(s, full, repairMode);
-			if (repairedString.length() > 0) {
-				State initialState = full.getInitialState();
-				State followingState = initialState.step(repairedString.toCharArray()[0]);
-				if (initialState != null && followingState != null)
-					transitionsCovered.add(new MsgPairExtended<Integer, Integer, Character>(initialState.hashCode(),
-							followingState.hashCode(), repairedString.toCharArray()[0]));
-				repairedString = repairedString.substring(1);
-				for (char c : repairedString.toCharArray()) {
-					initialState = followingState;
-					if (followingState != null)
-						followingState = followingState.step(c);
-					if (initialState != null && followingState != null)
-						transitionsCovered.add(new MsgPairExtended<Integer, Integer, Character>(initialState.hashCode(),
-								followingState.hashCode(), c));
-				}
+			String repairedString = repairSequence(s, system, repairMode);
+			int state = system.initialState();
+			for (int i = 0; i < repairedString.length(); i++) {
+				int symbol = alphabet.indexOf(repairedString.charAt(i));
+				transitionsCovered.set(state * k + symbol);
+				state = system.step(state, symbol);
 			}
 		}
 
 		// Debug code
 		System.out.println("\nCovered Transitions: ");
-		for (MsgPairExtended<Integer, Integer, Character> i : transitionsCovered)
-			System.out.println(i.toString() + " ");
+		for (int i = transitionsCovered.nextSetBit(0); i >= 0; i = transitionsCovered.nextSetBit(i + 1))
+			System.out.println("(" + i / k + " - " + system.step(i / k, i % k) + " - " + alphabet.symbol(i % k) + ") ");
 
-		return transitionsCovered.size();
+		return transitionsCovered.cardinality();
 	}
 
 	/**
@@ -526,6 +779,22 @@ public class Utils {
 		return stringList;
 	}
 
+	/**
+	 * Operation to create the sequences using the standard CIT approach, with a
+	 * constructive sequence covering array instead of the intersection of the
+	 * automata.
+	 *
+	 * @param msgsMapping the mapping of messages in characters
+	 * @param strength    the strength
+	 * @param allowReps   allow repetitions?
+	 * @return : the list of the test strings
+	 */
+	public static ArrayList<String> sequencesStandardCIT(BiMap<String, Character> msgsMapping, int strength,
+			Boolean allowReps) {
+		return SequenceCoveringArray.build(Alphabet.of(msgsMapping.values()), strength, allowReps,
+				ConfigurationData.NOT_SECOND);
+	}
+
 	/**
 	 * Function to repair the sequence.
 	 *
@@ -535,30 +804,20 @@ public class Utils {
 	 * @return the repaired sequence
 	 */
 	public static String repairSequence(String seq, Automaton fullSystemAutomaton, ReparationMode repairMode) {
-		String newStr = "";
-		switch (repairMode) {
-		case SKIP_ERROR:
-			for (int i = 0; i < seq.length(); i++) {
-				if (fullSystemAutomaton.run(newStr + seq.charAt(i)))
-					newStr = newStr + seq.charAt(i);
-			}
-			break;
-		case REJECT_NOT_VALID:
-			if (!fullSystemAutomaton.run(seq))
-				newStr = "";
-			else
-				newStr = seq;
-			break;
-		case STOP_AT_ERROR:
-			for (int i = 0; i < seq.length(); i++) {
-				if (!fullSystemAutomaton.run(seq.substring(0, i)))
-					break;
-				else
-					newStr = seq.substring(0, i);
-			}
-			break;
-		}
-		return newStr;
+		return repairSequence(seq, CompiledDFA.compile(fullSystemAutomaton), repairMode);
+	}
+
+	/**
+	 * Function to repair the sequence, using the compiled automaton of the system.
+	 * To repair many sequences, use a {@link SequenceRepairer}.
+	 *
+	 * @param seq        the set of sequences
+	 * @param system     the compiled automaton of the system
+	 * @param repairMode the repair mode
+	 * @return the repaired sequence
+	 */
+	public static String repairSequence(String seq, CompiledDFA system, ReparationMode repairMode) {
+		return new SequenceRepairer(system, repairMode).repair(seq);
 	}
 
 	/**
@@ -577,9 +836,10 @@ public class Utils {
 			ReparationMode repairingMode) {
 		int tCombinationCovered = 0;
 		ArrayList<Automaton> temp = (ArrayList<Automaton>) automatonListForTRecognition.clone();
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton);
 
 		for (String s : sequences) {
-			String fixedSeq = (!fullSystemAutomaton.run(s)) ? repairSequence(s, fullSystemAutomaton, repairingMode) : s;
+			String fixedSeq = (!system.accepts(s)) ? repairSequence(s, system, repairingMode) : s;
 
 			ArrayList<Automaton> temp2 = (ArrayList<Automaton>) temp.clone();
 			for (Automaton tAut : temp) {
@@ -614,6 +874,44 @@ public class Utils {
 		return n;
 	}
 
+	/**
+	 * Function compute the number of T-combination covered, using the packed
+	 * T-combinations.
+	 *
+	 * @param sequences           the set of sequences
+	 * @param tuples              the T-combinations to be covered
+	 * @param fullSystemAutomaton the full system automaton
+	 * @param repairingMode       the repairing mode
+	 * @return the number of covered T-combination
+	 */
+	public static int getNumberOfTCombinationCovered(HashSet<String> sequences, TupleStore tuples,
+			Automaton fullSystemAutomaton, ReparationMode repairingMode) {
+		// All the sequences are scanned into the same index, then the T-combinations
+		// are looked up only once
+		CoverageIndex index = new CoverageIndex(tuples);
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton);
+
+		for (String s : sequences) {
+			String fixedSeq = (!system.accepts(s)) ? repairSequence(s, system, repairingMode) : s;
+			index.scan(fixedSeq);
+		}
+
+		return tuples.covered(index).cardinality();
+	}
+
+	/**
+	 * Function compute the number of valid T-combination, using the packed
+	 * T-combinations.
+	 *
+	 * @param tuples              the T-combinations to be covered
+	 * @param fullSystemAutomaton the automaton of the full system
+	 * @return the number of valid T-combination
+	 */
+	public static int getNumberOfValidTCombinations(TupleStore tuples, Automaton fullSystemAutomaton) {
+		CompiledDFA system = CompiledDFA.compile(fullSystemAutomaton, tuples.getAlphabet());
+		return new FeasibilityAnalyzer(system).getNumberOfFeasible(tuples);
+	}
+
 	/**
 	 * Function to create the file containing the sequence of messages to be tested
 	 * on ProTest.
@@ -626,26 +924,98 @@ public class Utils {
 	 */
 	public static void createMessageSequences(ArrayList<String> collectingResult, BiMap<String, Character> msgsMapping,
 			boolean append, String outputFilePath) throws IOException {
-		FileWriter fout = new FileWriter(new File(outputFilePath).getAbsolutePath(), append);
+		createMessageSequences(collectingResult, msgsMapping, append, outputFilePath, null);
+	}
+
+	/**
+	 * Function to create the file containing the sequence of messages to be tested
+	 * on ProTest, through the given sink.
+	 *
+	 * @param collectingResult the collecting result
+	 * @param msgsMapping the msgs mapping
+	 * @param append the append
+	 * @param outputFilePath the output file path
+	 * @param sink the sink writing the file, null to write it directly
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void createMessageSequences(ArrayList<String> collectingResult, BiMap<String, Character> msgsMapping,
+			boolean append, String outputFilePath, ResultSink sink) throws IOException {
+		StringBuilder out = new StringBuilder();
 
-		// Write the converted sequences to the file
-		for (String msg : collectingResult) {
-			String str = msg;
-			String msgOut = "";
-			// Substitute each char of the sequence
-			for (int i = 0; i < str.length(); i++)
-				msgOut = msgOut + msgsMapping.inverse().get(str.charAt(i)) + " ";
+		// Convert the sequences, substituting each char of the sequence
+		for (String msg : collectingResult)
+			out.append(toMessageSequence(msg, msgsMapping)).append('\n');
 
-			fout.write(msgOut.toLowerCase() + "\n");
-		}
+		writeFile(outputFilePath, out.toString(), append, sink);
+	}
+
+	/**
+	 * Listener writing each sequence of a collecting in the file of the sequences
+	 * of messages as soon as it is found, so that the file can be used before the
+	 * end of the generation. The sequences already in the given set are skipped.
+	 *
+	 * @param msgsMapping the msgs mapping
+	 * @param append if "false", the file is truncated immediately
+	 * @param outputFilePath the output file path
+	 * @param sink the sink writing the file, null to write it directly
+	 * @param written the sequences already written, filled with the new ones
+	 * @return the listener, throwing an UncheckedIOException if the file cannot be
+	 *         written
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static CollectingListener messageSequenceWriter(BiMap<String, Character> msgsMapping, boolean append,
+			String outputFilePath, ResultSink sink, Set<String> written) throws IOException {
+		if (!append)
+			writeFile(outputFilePath, "", false, sink);
+		return (sequence, progress) -> {
+			if (!written.add(sequence))
+				return;
+			try {
+				writeFile(outputFilePath, toMessageSequence(sequence, msgsMapping) + '\n', true, sink);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	/**
+	 * Converts a sequence of chars into the messages, separated by spaces.
+	 */
+	private static String toMessageSequence(String msg, BiMap<String, Character> msgsMapping) {
+		StringBuilder msgOut = new StringBuilder();
+		for (int i = 0; i < msg.length(); i++)
+			msgOut.append(msgsMapping.inverse().get(msg.charAt(i))).append(' ');
+		return msgOut.toString().toLowerCase();
+	}
 
-		fout.close();
+	/**
+	 * Writes a text in a file, directly or through a sink.
+	 *
+	 * @param filePath the file path
+	 * @param text the text
+	 * @param append if "false", the file is truncated
+	 * @param sink the sink, null to write the file directly
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void writeFile(String filePath, String text, boolean append, ResultSink sink) throws IOException {
+		if (sink != null) {
+			sink.write(filePath, text, append);
+			return;
+		}
+		try (FileWriter fout = new FileWriter(new File(filePath).getAbsolutePath(), append)) {
+			fout.write(text);
+		}
 	}
 
 	/**
 	 * Merthod used to generate the test sequence that guarantee the State Coverage.
 	 * It is guaranteed by solving the TravellingSalesmanProblem: all the states in
-	 * a graph must be visited at least once.
+	 * a graph must be visited at least once. The tour is found by
+	 * {@link StateCoverageSolver}, exactly up to
+	 * {@link ConfigurationData#HELD_KARP_MAX_STATES} reachable states and
+	 * heuristically beyond. It is split into many sequences when some state cannot
+	 * be reached from the previous one, and the last sequence comes back to the
+	 * starting state when it can be reached.
 	 *
 	 * @param fromState   is the name of the state from which the test must start.
 	 * @param fsmFilePath the fsm file path
@@ -658,69 +1028,18 @@ public class Utils {
 	 */
 	public static ArrayList<String> getSequencesForStateCoverage(String fromState, String fsmFilePath,
 			String projectName) throws IllegalAccessException, InvocationTargetException, IOException {
-		ArrayList<Pair<Integer, String>> msgsIntegerMapping = new ArrayList<>();
-		// Convert the SMC into the corresponding JGraphT
-		Graph<String, Integer> automatonGraph = FSMAutomatonBuilder.convertSMCToGraph(msgsIntegerMapping, fsmFilePath,
-				projectName);
-		String resultList;
+		CompiledFSM fsm = ModelCache.get(fsmFilePath, projectName);
 		ArrayList<String> lst = new ArrayList<String>();
-
-		// Check if the graph has at least a single vertex since the TSP is solved only
-		// for this kind
-		// of graphs
-		if (automatonGraph.vertexSet().size() > 0) {
-			HeldKarpTSP<String, Integer> visitTSP = new HeldKarpTSP<>();
-
-			DOTExporter<String, Integer> exporter = new DOTExporter<>();
-			Writer writer = new StringWriter();
-			exporter.exportGraph(automatonGraph, writer);
-			System.out.println(writer.toString());
-
-			GraphPath<String, Integer> sol;
-			sol = visitTSP.getTour(automatonGraph);
-
-			List<Integer> edgeList = new ArrayList<>();
-			List<String> vertexList = new ArrayList<>();
-			int lastIndexOfUnassociated = 0;
-			resultList = "";
-
-			if (sol != null) {
-				// Since we want to start from a specific state, shift the event into the result
-				// list
-				edgeList = sol.getEdgeList();
-				vertexList = sol.getVertexList();
-				lastIndexOfUnassociated = vertexList.lastIndexOf(fromState);
-			}
-			{
-				// TSP is not computable -> Simulate the shortest path by using Dijkstra
-				Set<String> vertexSet = automatonGraph.vertexSet();
-				DijkstraShortestPath<String, Integer> path = new DijkstraShortestPath<String, Integer>(automatonGraph);
-
-				// Add step by step all the states
-				for (String s : vertexSet) {
-					String initial = (vertexList.size() > 0) ? vertexList.get(vertexList.size() - 1) : fromState;
-					sol = path.getPath(initial, s);
-
-					edgeList.addAll(sol.getEdgeList());
-					vertexList.addAll(sol.getVertexList());
-				}
-
-				// Come back to the initial state
-				sol = path.getPath(vertexList.get(vertexList.size() - 1), fromState);
-
-				edgeList.addAll(sol.getEdgeList());
-				vertexList.addAll(sol.getVertexList());
-			}
-
-			List<Integer> shiftedEdgeList = edgeList.subList(lastIndexOfUnassociated, edgeList.size());
-			shiftedEdgeList.addAll(edgeList.subList(0, lastIndexOfUnassociated));
-
-			for (Integer msg : shiftedEdgeList)
-				resultList += decodeMessage(msg, msgsIntegerMapping) + " ";
-
-			lst.add(resultList);
+		int start = fsm.getStateId(fromState);
+		if (start < 0)
+			return lst;
+		for (int[] walk : StateCoverageSolver.solve(fsm, start, ConfigurationData.HELD_KARP_MAX_STATES,
+				ConfigurationData.STATE_COVERAGE_TIME_BUDGET)) {
+			StringBuilder resultList = new StringBuilder();
+			for (int t : walk)
+				resultList.append(fsm.getEventName(fsm.getEvent(t))).append(' ');
+			lst.add(resultList.toString());
 		}
-
 		return lst;
 	}
 
@@ -736,7 +1055,7 @@ public class Utils {
 	 */
 	public static String decodeMessage(Integer message, ArrayList<Pair<Integer, String>> list) {
 		for (int i = 0; i < list.size(); i++) {
-			if (list.get(i).getKey() == message) {
+			if (list.get(i).getKey().equals(message)) {
 				return list.get(i).getValue();
 			}
 		}
@@ -752,6 +1071,39 @@ public class Utils {
 	 * @return the list of all the automatons A(P_i)
 	 */
 	public static ArrayList<Automaton> getAutomatonList(ArrayList<MsgPair<String, String>> coupleList) {
+		ArrayList<Automaton> automatonList = new ArrayList<>();
+		TupleAutomatonBuilder builder = new TupleAutomatonBuilder(2);
+		for (MsgPair<String, String> m : coupleList)
+			automatonList.add(builder.build(m.getFirst(), m.getSecond()));
+		return automatonList;
+	}
+
+	/**
+	 * Function that creates a single automaton for the recognition of each triads.
+	 * The automaton has to be able to recognize the string composed by "FIRST -
+	 * SECOND - THIRD"
+	 * 
+	 * @param triadsList : the list of all the possible triads
+	 * @return the list of all the automatons A(P_i)
+	 */
+	public static ArrayList<Automaton> getAutomatonListForTriads(
+			ArrayList<MsgTriad<String, String, String>> triadsList) {
+		ArrayList<Automaton> automatonList = new ArrayList<>();
+		TupleAutomatonBuilder builder = new TupleAutomatonBuilder(3);
+		for (MsgTriad<String, String, String> m : triadsList)
+			automatonList.add(builder.build(m.getFirst(), m.getSecond(), m.getThird()));
+		return automatonList;
+	}
+
+	/**
+	 * Function that creates a single automaton for the recognition of each couple.
+	 * The automaton has to be able to recognize the string composed by "FIRST -
+	 * SECOND", compiling a regular expression.
+	 * 
+	 * @param coupleList : the list of all the possible couples
+	 * @return the list of all the automatons A(P_i)
+	 */
+	public static ArrayList<Automaton> getAutomatonListFromRegExp(ArrayList<MsgPair<String, String>> coupleList) {
 		ArrayList<Automaton> automatonList = new ArrayList<>();
 		for (MsgPair<String, String> m : coupleList) {
 			String msg = m.toString().replace(")", "").replace("(", "");
@@ -770,12 +1122,12 @@ public class Utils {
 	/**
 	 * Function that creates a single automaton for the recognition of each triads.
 	 * The automaton has to be able to recognize the string composed by "FIRST -
-	 * SECOND - THIRD"
+	 * SECOND - THIRD", compiling a regular expression.
 	 * 
 	 * @param triadsList : the list of all the possible triads
 	 * @return the list of all the automatons A(P_i)
 	 */
-	public static ArrayList<Automaton> getAutomatonListForTriads(
+	public static ArrayList<Automaton> getAutomatonListForTriadsFromRegExp(
 			ArrayList<MsgTriad<String, String, String>> triadsList) {
 		ArrayList<Automaton> automatonList = new ArrayList<>();
 		for (MsgTriad<String, String, String> m : triadsList) {
@@ -808,11 +1160,59 @@ public class Utils {
 				: getAutomatonListForTriads(Utils.getMsgTriads(msgsMapping, withReps));
 	}
 
+	/**
+	 * Function that builds the packed T-combinations to be recognized. It is the
+	 * counterpart of {@link #getAutomatonListForTRecognition(BiMap, int, Boolean)}
+	 * that does not build an automaton for each T-combination.
+	 *
+	 * @param msgsMapping the msgs mapping
+	 * @param strength the strength
+	 * @param withReps the with reps
+	 * @return the T-combinations to be recognized
+	 */
+	public static TupleStore getTupleStoreForTRecognition(BiMap<String, Character> msgsMapping, int strength,
+			Boolean withReps) {
+		return TupleStore.create(msgsMapping, strength, withReps);
+	}
+
+	/**
+	 * Function that builds the packed T-combinations to be recognized, shuffled
+	 * with the given seed so that the collecting can be reproduced.
+	 *
+	 * @param msgsMapping the msgs mapping
+	 * @param strength the strength
+	 * @param withReps the with reps
+	 * @param seed the seed of the shuffle
+	 * @return the T-combinations to be recognized
+	 */
+	public static TupleStore getTupleStoreForTRecognition(BiMap<String, Character> msgsMapping, int strength,
+			Boolean withReps, long seed) {
+		return TupleStore.create(msgsMapping, strength, withReps, new Random(seed));
+	}
+
+	/**
+	 * Function that builds the source of the T-combinations to be recognized, for
+	 * any strength. The T-combinations are produced on demand in the
+	 * pseudo-random order given by the seed, so that the collecting can be
+	 * reproduced.
+	 *
+	 * @param msgsMapping the msgs mapping
+	 * @param strength the strength
+	 * @param withReps the with reps
+	 * @param seed the seed of the order of the T-combinations
+	 * @return the source of the T-combinations to be recognized
+	 */
+	public static TupleSource getTupleSourceForTRecognition(BiMap<String, Character> msgsMapping, int strength,
+			Boolean withReps, long seed) {
+		return TupleSource.create(msgsMapping, strength, withReps, seed);
+	}
+
 	/**
 	 * Method used to generate the test sequence that guarantee the Transition
 	 * Coverage. It is guaranteed by solving the ChinesePostmanProblem, that is also
 	 * called Route Inspection Problem: all the transitions in a graph must be
-	 * executed at least once.
+	 * executed at least once. When some state cannot come back to the starting
+	 * one, the reset message is used to return to it.
 	 *
 	 * @param fromState   is the name of the state from which the test must start.
 	 * @param split       the split
@@ -828,53 +1228,39 @@ public class Utils {
 	public static ArrayList<String> getSequencesForTransitionCoverage(String fromState, Boolean split,
 			String fsmFilePath, String projectName, String resetMsg)
 			throws IllegalAccessException, InvocationTargetException, IOException {
-		ArrayList<Pair<Integer, String>> msgsIntegerMapping = new ArrayList<>();
-		// Convert the SMC into the corresponding JGraphT
-		Graph<String, Integer> automatonGraph = FSMAutomatonBuilder.convertSMCToGraph(msgsIntegerMapping, fsmFilePath,
-				projectName);
-		String resultList;
+		CompiledFSM fsm = ModelCache.get(fsmFilePath, projectName);
 		ArrayList<String> lst = new ArrayList<String>();
-
-		// Check if the graph is strongly connected and generate the test sequence ->
-		// We must have a Strongly Connected graph since the ChinesePostman problem is
-		// solved only for this kind
-		// of graphs
-		if (GraphTests.isStronglyConnected(automatonGraph)) {
-			ChinesePostman<String, Integer> visitCFP = new ChinesePostman<>();
-			GraphPath<String, Integer> sol = visitCFP.getCPPSolution(automatonGraph);
-
-			// Since we want to start from a specific state, shift the event into the result
-			// list
-			resultList = "";
-			List<Integer> edgeList = sol.getEdgeList();
-			List<String> vertexList = sol.getVertexList();
-			int lastIndexOfUnassociated = vertexList.lastIndexOf(fromState);
-
-			List<Integer> shiftedEdgeList = edgeList.subList(lastIndexOfUnassociated, edgeList.size());
-			shiftedEdgeList.addAll(edgeList.subList(0, lastIndexOfUnassociated));
-			List<String> shiftedVertexList = vertexList.subList(lastIndexOfUnassociated, vertexList.size());
-			shiftedVertexList.addAll(vertexList.subList(0, lastIndexOfUnassociated));
-
-			// Check if the sequence has to be splitted
-			if (!split || resetMsg.equals("")) {
-				for (Integer msg : shiftedEdgeList)
-					resultList += Utils.decodeMessage(msg, msgsIntegerMapping) + " ";
-
-				lst.add(resultList);
+		int start = fsm.getStateId(fromState);
+		if (start < 0)
+			return lst;
+
+		// Without a reset message, the graph must be strongly connected since the
+		// ChinesePostman problem is solved only for this kind of graphs
+		int[] tour = ChinesePostmanSolver.solve(fsm, start, resetMsg.equals("") ? -1 : ConfigurationData.RESET_COST);
+		if (tour == null || tour.length == 0)
+			return lst;
+
+		// Check if the sequence has to be splitted, every time the starting state is
+		// reached again
+		boolean splitAtStart = split && !resetMsg.equals("");
+		StringBuilder resultList = new StringBuilder(splitAtStart ? resetMsg + " " : "");
+		for (int t : tour) {
+			boolean atStart;
+			if (t == ChinesePostmanSolver.RESET) {
+				if (!splitAtStart)
+					resultList.append(resetMsg).append(' ');
+				atStart = true;
 			} else {
-				resultList = resetMsg + " ";
-
-				for (int i = 0; i < shiftedEdgeList.size(); i++) {
-					resultList += Utils.decodeMessage(shiftedEdgeList.get(i), msgsIntegerMapping) + " ";
-
-					if (shiftedVertexList.get(i + 1).equals(fromState)) {
-						lst.add(resultList);
-						resultList = resetMsg + " ";
-					}
-
-				}
+				resultList.append(fsm.getEventName(fsm.getEvent(t))).append(' ');
+				atStart = fsm.getTarget(t) == start;
+			}
+			if (splitAtStart && atStart) {
+				lst.add(resultList.toString());
+				resultList = new StringBuilder(resetMsg + " ");
 			}
 		}
+		if (!splitAtStart)
+			lst.add(resultList.toString());
 
 		return lst;
 	}
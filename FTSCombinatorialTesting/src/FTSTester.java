@@ -1,16 +1,19 @@
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 
 import config.ConfigurationData;
-import ctwedge.util.Test;
 import ctwedge.util.TestSuite;
 import de.ovgu.featureide.fm.core.base.IFeatureModel;
 import de.ovgu.featureide.fm.core.init.FMCoreLibrary;
@@ -20,24 +23,61 @@ import enums.Length;
 import enums.Mode;
 import enums.ReparationMode;
 import featuremodels.specificity.BDDCITTestGenerator;
+import util.CancellationToken;
+import util.CompiledDFA;
 import util.FSMAutomatonBuilderWithCondition;
+import util.FamilyCollector;
+import util.FeaturedAutomaton;
+import util.ProductClasses;
+import util.ProductMatrix;
+import util.ResultSink;
+import util.SuiteReport;
+import util.SuiteReuse;
+import util.TupleStore;
 import util.Utils;
 
 public class FTSTester {
 
 	private static final int AUTOMATA_PER_BATCH = 10;
 	private static final int NREP = 5;
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	// All the result, sequence and CSV files are written by a single thread; every
+	// repetition has its own result and sequence files, and its rows of the CSV
+	// file carry its index
+	private static final ResultSink SINK = new ResultSink();
 
 	static {
 		FMCoreLibrary.getInstance().install();
 	}
 
 	public static void main(String[] args) {
-		for (int i = 0; i < NREP; i++) {
-			// Generate with StandardCIT
-			generateTestsWithStandardCT("VendingMachine", "Idle", 2, true, AUTOMATA_PER_BATCH, false, "", i);
-			// Generate with CT4SPL
-			generateTestsWithCT4SPL("VendingMachine", "Idle", 2, true, AUTOMATA_PER_BATCH, false, "", i);
+		// The repetitions and the generation modes run concurrently on the pool,
+		// which also runs the products of every mode
+		ForkJoinPool pool = new ForkJoinPool(THREADS);
+		try {
+			List<ForkJoinTask<?>> runs = new ArrayList<>();
+			for (int i = 0; i < NREP; i++) {
+				final int nexec = i;
+				// Generate with StandardCIT
+				runs.add(pool.submit(() -> generateTestsWithStandardCT("VendingMachine", "Idle", 2, true,
+						AUTOMATA_PER_BATCH, false, "", nexec)));
+				// Generate with CT4SPL
+				runs.add(pool.submit(() -> generateTestsWithCT4SPL("VendingMachine", "Idle", 2, true,
+						AUTOMATA_PER_BATCH, false, "", nexec)));
+				// Generate for all the products at once
+				runs.add(pool.submit(() -> generateTestsWithFamily("VendingMachine", "Idle", 2, true,
+						AUTOMATA_PER_BATCH, false, "", nexec)));
+			}
+			for (ForkJoinTask<?> run : runs)
+				run.join();
+		} finally {
+			pool.shutdown();
+			try {
+				SINK.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
 		}
 	}
 
@@ -47,16 +87,11 @@ public class FTSTester {
 		String fsmFilePath = "data/" + systemName + "/" + systemName + ".sm";
 		String fmPath = "data/" + systemName + "/" + systemName + ".xml";
 		String resultFile = "data/" + systemName + "/ResultFile_" + systemName + automatonsPerBatch + "_" + strength
-				+ ".txt";
+				+ "_exec" + nexec + ".txt";
 		String sequenceFile = "data/" + systemName + "/Sequences_" + systemName + automatonsPerBatch + "_" + strength
-				+ ".txt";
+				+ "_exec" + nexec + ".txt";
 		String csvFile = "data/" + systemName + "/Results_" + systemName + ".csv";
 
-		// Structures
-		BiMap<String, Character> msgsMapping = HashBiMap.create();
-		ArrayList<Automaton> automatonListForTRecognition = new ArrayList<>();
-		Automaton fullSystemAutomaton = new Automaton();
-
 		// Experiments data
 		long start = System.currentTimeMillis();
 
@@ -67,45 +102,119 @@ public class FTSTester {
 			BDDCITTestGenerator generator = new BDDCITTestGenerator(fm, strength);
 			TestSuite ts = generator.generateTestSuite();
 
-			int i = 0;
-
 			System.out.println(ts.getTests());
 
 			// If StandardCT is used, no guard (feature) has to be considered in the
 			// generation of the the FSM, and only a single test suite is generated
-			msgsMapping = HashBiMap.create();
-			Automaton systemAutomatonNoFeatures = FSMAutomatonBuilderWithCondition.buildFSMAutomatonFromSMC(msgsMapping,
-					(Test) null, fsmFilePath, systemName);
+			BiMap<String, Character> familyMapping = HashBiMap.create();
+			FeaturedAutomaton family = FSMAutomatonBuilderWithCondition.buildFeaturedAutomatonFromSMC(familyMapping,
+					ts.getTests(), fsmFilePath, systemName);
+			Automaton systemAutomatonNoFeatures = family.getFSM().toAutomaton(familyMapping);
 
 			// Generate the list of tuples to be covered
-			automatonListForTRecognition = Utils.getAutomatonListForTRecognition(msgsMapping, strength,
+			TupleStore tuples = Utils.getTupleStoreForTRecognition(familyMapping, strength,
 					ConfigurationData.ALLOW_REPS_IN_TUPLES);
 
-			// Collecting and Conversion into the message format
-			HashSet<String> sequences = new HashSet<>();
+			// Collecting and Conversion into the message format, the suite is written as a
+			// whole, possibly partial if the time budget expires
 			String thisSequenceFile = sequenceFile.replace(".txt", "_ALL.txt");
-			sequences = new HashSet<String>(Utils.collecting(systemAutomatonNoFeatures, automatonListForTRecognition,
-					useMonitoring, ConfigurationData.MAX_STATES_PER_AUTOMATA, automatonsPerBatch));
-			Utils.createMessageSequences(new ArrayList<String>(sequences), msgsMapping, true, thisSequenceFile);
+			HashSet<String> sequences = new HashSet<String>(Utils.collecting(systemAutomatonNoFeatures, tuples,
+					useMonitoring, ConfigurationData.MAX_STATES_PER_AUTOMATA, automatonsPerBatch,
+					(sequence, progress) -> System.out.println("[" + nexec + "] " + progress),
+					CancellationToken.withBudget(ConfigurationData.COLLECTING_TIME_BUDGET)));
+			Utils.createMessageSequences(new ArrayList<String>(sequences), familyMapping, false, thisSequenceFile,
+					SINK);
 			float time = ((System.currentTimeMillis() - start) / 1000F);
 
-			for (Test t : ts.getTests()) {
-				String thisResultFile = resultFile.replace(".txt", "_" + i + ".txt");
-				i++;
+			// Evaluate the suite on all the products in a single simulation
+			ProductMatrix matrix = ProductMatrix.evaluate(family, new ArrayList<String>(sequences), tuples,
+					ReparationMode.SKIP_ERROR);
+
+			// Generate the automata corresponding to the Feature Transition System, for all
+			// the products at once
+			List<BiMap<String, Character>> productMappings = new ArrayList<>();
+			ArrayList<Automaton> productAutomata = FSMAutomatonBuilderWithCondition
+					.buildFSMAutomataFromSMC(productMappings, ts.getTests(), fsmFilePath, systemName);
+
+			// The products only share the matrix, which is not modified
+			List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+			for (int p = 0; p < productAutomata.size(); p++) {
+				final int product = p;
+				tasks.add(ForkJoinTask.adapt(() -> {
+					String thisResultFile = resultFile.replace(".txt", "_" + product + ".txt");
+					Automaton fullSystemAutomaton = productAutomata.get(product);
+					SuiteReport report = matrix.getReport(product);
+					Utils.writeStatistics(strength, useMonitoring, Mode.STANDARD_CIT, ReparationMode.SKIP_ERROR,
+							automatonsPerBatch, thisResultFile, productMappings.get(product), fullSystemAutomaton,
+							time, report, SINK);
+					exportCSV(csvFile, report, time, product + 1, Mode.STANDARD_CIT, fullSystemAutomaton, nexec);
+					return null;
+				}));
+			}
+			ForkJoinTask.invokeAll(tasks);
 
-				// Reset previously created structures
-				fullSystemAutomaton = new Automaton();
-				msgsMapping = HashBiMap.create();
+		} catch (Exception e1) {
+			e1.printStackTrace();
+		}
+	}
 
-				// Generate the automaton corresponding to the Feature Transition System
-				fullSystemAutomaton = FSMAutomatonBuilderWithCondition.buildFSMAutomatonFromSMC(msgsMapping, t,
-						fsmFilePath, systemName);
+	private static void generateTestsWithCT4SPL(String systemName, String initialState, int strength,
+			Boolean useMonitoring, int automatonsPerBatch, Boolean splitSequences, String resetMessage, int nexec) {
+		// Configurations
+		String fsmFilePath = "data/" + systemName + "/" + systemName + ".sm";
+		String fmPath = "data/" + systemName + "/" + systemName + ".xml";
+		String resultFile = "data/" + systemName + "/ResultFile_" + systemName + automatonsPerBatch + "_" + strength
+				+ "_exec" + nexec + ".txt";
+		String sequenceFile = "data/" + systemName + "/Sequences_" + systemName + automatonsPerBatch + "_" + strength
+				+ "_exec" + nexec + ".txt";
+		String csvFile = "data/" + systemName + "/Results_" + systemName + ".csv";
 
-				Utils.extractStatistics(strength, useMonitoring, Mode.STANDARD_CIT, ReparationMode.SKIP_ERROR,
-						automatonsPerBatch, thisResultFile, msgsMapping, automatonListForTRecognition,
-						fullSystemAutomaton, time, sequences);
-				exportCSV(csvFile, sequences, time, i, Mode.STANDARD_CIT, fullSystemAutomaton,
-						ReparationMode.SKIP_ERROR, nexec);
+		// Experiments data
+		long start = System.currentTimeMillis();
+
+		try {
+			// Generate a test suite for the Feature Model, in order to have the products to
+			// be tested
+			IFeatureModel fm = FeatureModelManager.load(Path.of(fmPath));
+			BDDCITTestGenerator generator = new BDDCITTestGenerator(fm, strength);
+			TestSuite ts = generator.generateTestSuite();
+
+			System.out.println(ts.getTests());
+
+			// Products enabling the same transitions have the same automaton, so the
+			// generation is run once per class of products and shared by all of them
+			ProductClasses classes = FSMAutomatonBuilderWithCondition.classifyProducts(ts.getTests(), fsmFilePath,
+					systemName);
+			List<BiMap<String, Character>> classMappings = new ArrayList<>();
+			ArrayList<Automaton> classAutomata = FSMAutomatonBuilderWithCondition
+					.buildFSMAutomataFromSMC(classMappings, classes, fsmFilePath, systemName);
+			System.out.println(classes.size() + " distinct automata for " + classes.getNumberOfProducts()
+					+ " products");
+
+			// Consecutive classes share as many transitions as possible, so that the
+			// sequences already generated cover most of the T-combinations of the next one
+			List<BitSet> classTransitions = new ArrayList<>();
+			for (int c = 0; c < classes.size(); c++)
+				classTransitions.add(classes.getEnabledTransitions(c));
+			int[] order = ConfigurationData.REUSE_SEQUENCES_ACROSS_PRODUCTS ? SuiteReuse.order(classTransitions)
+					: IntStream.range(0, classes.size()).toArray();
+
+			if (ConfigurationData.REUSE_SEQUENCES_ACROSS_PRODUCTS) {
+				// Every class replays the sequences of the previous ones, so the classes run
+				// one after another
+				LinkedHashSet<String> generated = new LinkedHashSet<>();
+				for (int c : order)
+					generateForClass(c, classes, classMappings.get(c), classAutomata.get(c), generated, strength,
+							useMonitoring, automatonsPerBatch, resultFile, sequenceFile, csvFile, start, nexec);
+			} else {
+				List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+				for (int c : order)
+					tasks.add(ForkJoinTask.adapt(() -> {
+						generateForClass(c, classes, classMappings.get(c), classAutomata.get(c), null, strength,
+								useMonitoring, automatonsPerBatch, resultFile, sequenceFile, csvFile, start, nexec);
+						return null;
+					}));
+				ForkJoinTask.invokeAll(tasks);
 			}
 
 		} catch (Exception e1) {
@@ -113,22 +222,71 @@ public class FTSTester {
 		}
 	}
 
-	private static void generateTestsWithCT4SPL(String systemName, String initialState, int strength,
+	/**
+	 * Generates the suite of a class of products, and writes the results of all
+	 * its products.
+	 *
+	 * @param generated the sequences of the classes already generated, to be
+	 *                  reused and extended; null to generate from scratch
+	 */
+	private static void generateForClass(int c, ProductClasses classes, BiMap<String, Character> msgsMapping,
+			Automaton fullSystemAutomaton, LinkedHashSet<String> generated, int strength, Boolean useMonitoring,
+			int automatonsPerBatch, String resultFile, String sequenceFile, String csvFile, long start, int nexec)
+			throws IOException {
+		// Generate the list of tuples to be covered
+		TupleStore tuples = Utils.getTupleStoreForTRecognition(msgsMapping, strength,
+				ConfigurationData.ALLOW_REPS_IN_TUPLES);
+
+		HashSet<String> sequences = new HashSet<>();
+
+		// Replay the sequences of the previous products, only the T-combinations they
+		// do not cover are left to the collecting
+		TupleStore uncovered = tuples;
+		if (generated != null) {
+			uncovered = tuples.copy();
+			sequences.addAll(SuiteReuse.reuse(CompiledDFA.compile(fullSystemAutomaton, tuples.getAlphabet()),
+					generated, uncovered, ReparationMode.SKIP_ERROR));
+		}
+
+		// Collecting
+		sequences.addAll(Utils.collecting(fullSystemAutomaton, uncovered, useMonitoring,
+				ConfigurationData.MAX_STATES_PER_AUTOMATA, automatonsPerBatch));
+		if (generated != null)
+			generated.addAll(sequences);
+
+		float time = ((System.currentTimeMillis() - start) / 1000F);
+		SuiteReport report = null;
+		BitSet products = classes.getProducts(c);
+		for (int p = products.nextSetBit(0); p >= 0; p = products.nextSetBit(p + 1)) {
+			String thisResultFile = resultFile.replace(".txt", "_" + p + ".txt");
+			String thisSequenceFile = sequenceFile.replace(".txt", "_" + p + ".txt");
+
+			// Conversion into the message format
+			Utils.createMessageSequences(new ArrayList<String>(sequences), msgsMapping, false, thisSequenceFile, SINK);
+
+			// The statistics are the same for all the products of the class
+			if (report == null)
+				report = Utils.extractStatistics(strength, useMonitoring, Mode.ONLY_CONSTRAINT,
+						ReparationMode.SKIP_ERROR, automatonsPerBatch, thisResultFile, msgsMapping, tuples,
+						fullSystemAutomaton, time, sequences, SINK);
+			else
+				Utils.writeStatistics(strength, useMonitoring, Mode.ONLY_CONSTRAINT, ReparationMode.SKIP_ERROR,
+						automatonsPerBatch, thisResultFile, msgsMapping, fullSystemAutomaton, time, report, SINK);
+			exportCSV(csvFile, report, time, p + 1, Mode.ONLY_CONSTRAINT, fullSystemAutomaton, nexec);
+		}
+	}
+
+	private static void generateTestsWithFamily(String systemName, String initialState, int strength,
 			Boolean useMonitoring, int automatonsPerBatch, Boolean splitSequences, String resetMessage, int nexec) {
 		// Configurations
 		String fsmFilePath = "data/" + systemName + "/" + systemName + ".sm";
 		String fmPath = "data/" + systemName + "/" + systemName + ".xml";
 		String resultFile = "data/" + systemName + "/ResultFile_" + systemName + automatonsPerBatch + "_" + strength
-				+ ".txt";
+				+ "_exec" + nexec + ".txt";
 		String sequenceFile = "data/" + systemName + "/Sequences_" + systemName + automatonsPerBatch + "_" + strength
-				+ ".txt";
+				+ "_exec" + nexec + ".txt";
 		String csvFile = "data/" + systemName + "/Results_" + systemName + ".csv";
 
-		// Structures
-		BiMap<String, Character> msgsMapping = HashBiMap.create();
-		ArrayList<Automaton> automatonListForTRecognition = new ArrayList<>();
-		Automaton fullSystemAutomaton = new Automaton();
-
 		// Experiments data
 		long start = System.currentTimeMillis();
 
@@ -139,63 +297,60 @@ public class FTSTester {
 			BDDCITTestGenerator generator = new BDDCITTestGenerator(fm, strength);
 			TestSuite ts = generator.generateTestSuite();
 
-			int i = 0;
-
 			System.out.println(ts.getTests());
 
-			for (Test t : ts.getTests()) {
-				String thisResultFile = resultFile.replace(".txt", "_" + i + ".txt");
-				String thisSequenceFile = sequenceFile.replace(".txt", "_" + i + ".txt");
-				i++;
-
-				// Reset previously created structures
-				msgsMapping = HashBiMap.create();
-				automatonListForTRecognition = new ArrayList<>();
-				fullSystemAutomaton = new Automaton();
-
-				// Generate the automaton corresponding to the Feature Transition System
-				fullSystemAutomaton = FSMAutomatonBuilderWithCondition.buildFSMAutomatonFromSMC(msgsMapping, t,
-						fsmFilePath, systemName);
-
-				// Generate the list of tuples to be covered
-				automatonListForTRecognition = Utils.getAutomatonListForTRecognition(msgsMapping, strength,
-						ConfigurationData.ALLOW_REPS_IN_TUPLES);
-
-				HashSet<String> sequences = new HashSet<>();
-
-				// Collecting and Conversion into the message format
-				sequences = new HashSet<String>(Utils.collecting(fullSystemAutomaton, automatonListForTRecognition,
-						useMonitoring, ConfigurationData.MAX_STATES_PER_AUTOMATA, automatonsPerBatch));
-				Utils.createMessageSequences(new ArrayList<String>(sequences), msgsMapping, true, thisSequenceFile);
-
-				float time = ((System.currentTimeMillis() - start) / 1000F);
-				Utils.extractStatistics(strength, useMonitoring, Mode.ONLY_CONSTRAINT, ReparationMode.SKIP_ERROR,
-						automatonsPerBatch, thisResultFile, msgsMapping, automatonListForTRecognition,
-						fullSystemAutomaton, time, sequences);
-				exportCSV(csvFile, sequences, time, i, Mode.ONLY_CONSTRAINT, fullSystemAutomaton,
-						ReparationMode.SKIP_ERROR, nexec);
+			// Generate the automaton of the whole family, whose transitions carry the
+			// products in which they are present
+			BiMap<String, Character> familyMapping = HashBiMap.create();
+			FeaturedAutomaton family = FSMAutomatonBuilderWithCondition.buildFeaturedAutomatonFromSMC(familyMapping,
+					ts.getTests(), fsmFilePath, systemName);
+
+			// Collecting for all the products at once: every sequence comes with the
+			// products for which it is valid
+			TupleStore tuples = Utils.getTupleStoreForTRecognition(familyMapping, strength,
+					ConfigurationData.ALLOW_REPS_IN_TUPLES);
+			LinkedHashMap<String, BitSet> familySequences = FamilyCollector.collecting(family, tuples, useMonitoring,
+					ConfigurationData.MAX_STATES_PER_AUTOMATA, automatonsPerBatch);
+			float time = ((System.currentTimeMillis() - start) / 1000F);
+
+			// The products only share the family and its sequences, which are not modified
+			List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+			for (int p = 0; p < family.getNumberOfProducts(); p++) {
+				final int product = p;
+				tasks.add(ForkJoinTask.adapt(() -> {
+					String thisResultFile = resultFile.replace(".txt", "_FAMILY_" + product + ".txt");
+					String thisSequenceFile = sequenceFile.replace(".txt", "_FAMILY_" + product + ".txt");
+
+					// The product uses the chars of the family for its messages
+					BiMap<String, Character> msgsMapping = family.getMsgsMapping(product);
+					Automaton fullSystemAutomaton = family.toAutomaton(product);
+					HashSet<String> sequences = new HashSet<>(FamilyCollector.getSequences(familySequences, product));
+					Utils.createMessageSequences(new ArrayList<String>(sequences), familyMapping, false,
+							thisSequenceFile, SINK);
+
+					SuiteReport report = Utils.extractStatistics(strength, useMonitoring, Mode.FAMILY_BASED,
+							ReparationMode.SKIP_ERROR, automatonsPerBatch, thisResultFile, msgsMapping,
+							Utils.getTupleStoreForTRecognition(msgsMapping, strength,
+									ConfigurationData.ALLOW_REPS_IN_TUPLES),
+							fullSystemAutomaton, time, sequences, SINK);
+					exportCSV(csvFile, report, time, product + 1, Mode.FAMILY_BASED, fullSystemAutomaton, nexec);
+					return null;
+				}));
 			}
+			ForkJoinTask.invokeAll(tasks);
 
 		} catch (Exception e1) {
 			e1.printStackTrace();
 		}
 	}
 
-	private static void exportCSV(String fileName, HashSet<String> sequences, float time, int product,
-			Mode generationMode, Automaton fullSystemAutomaton, ReparationMode repairMode, int nexec)
-			throws IOException {
-		File f = new File(fileName);
-		BufferedWriter fw = new BufferedWriter(new FileWriter(f, true));
-
-		// Write the row for the execution
-		fw.write(product + ";" + generationMode.toString() + ";" + sequences.size() + ";" + time + ";"
-				+ (((float) Utils.getNumberOfTransitionsCovered(sequences, fullSystemAutomaton, repairMode)
-						/ fullSystemAutomaton.getNumberOfTransitions()) * 100)
-				+ ";"
-				+ (((float) Utils.getNumberOfStatesCovered(sequences, fullSystemAutomaton, repairMode)
-						/ fullSystemAutomaton.getNumberOfStates()) * 100)
-				+ ";" + Utils.getLength(sequences, Length.AVG) + ";" + nexec + "\n");
-
-		fw.close();
+	private static void exportCSV(String fileName, SuiteReport report, float time, int product, Mode generationMode,
+			Automaton fullSystemAutomaton, int nexec) {
+		// Write the row for the execution, as a whole
+		SINK.write(fileName, product + ";" + generationMode.toString() + ";" + report.getNumberOfSequences() + ";"
+				+ time + ";"
+				+ (((float) report.getNumberOfTransitionsCovered() / fullSystemAutomaton.getNumberOfTransitions()) * 100)
+				+ ";" + (((float) report.getNumberOfStatesCovered() / fullSystemAutomaton.getNumberOfStates()) * 100)
+				+ ";" + report.getLength(Length.AVG) + ";" + nexec + "\n", true);
 	}
 }
@@ -1,126 +1,149 @@
 package util;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.WeakHashMap;
 import java.util.stream.Collectors;
-
-import org.apache.log4j.Logger;
-import org.mvel2.MVEL;
+import java.util.stream.IntStream;
 
 import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
 
 import ctwedge.util.Test;
 import dk.brics.automaton.Automaton;
-import net.sf.smc.model.SmcFSM;
-import net.sf.smc.model.SmcGuard;
-import net.sf.smc.model.SmcMap;
-import net.sf.smc.model.SmcState;
-import net.sf.smc.model.SmcTransition;
-import net.sf.smc.model.TargetLanguage;
-import net.sf.smc.parser.SmcParser;
 
 public class FSMAutomatonBuilderWithCondition extends FSMAutomatonBuilder {
 
+	// Compiled guards of the models, the models are shared through the ModelCache
+	private static final Map<CompiledFSM, GuardTable> GUARDS = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private static GuardTable getGuardTable(CompiledFSM fsm) {
+		return GUARDS.computeIfAbsent(fsm, f -> new GuardTable(f, MVELGuard::new));
+	}
+
 	/**
 	 * Function that builds the automaton that represents the FSM starting from the
-	 * SMC description * @param fsm
-	 * 
+	 * SMC description. If a product is given, only the transitions whose guard
+	 * holds in the product are kept.
+	 *
 	 * @return
 	 * @throws IOException
 	 */
 	public static Automaton buildFSMAutomatonFromSMC(BiMap<String, Character> msgsMapping, Test product,
 			String fsmFile, String projectName) throws IOException, IllegalAccessException, InvocationTargetException {
+		CompiledFSM fsm = ModelCache.get(fsmFile, projectName);
+		BitSet enabled = fsm.allTransitions();
 
-		// Logger
-		Logger logger = Logger.getLogger(FSMAutomatonBuilder.class);
-
-		// SMC file
-		File f = new File(fsmFile);
-
-		// Parse the SMC file
-		SmcParser p = new SmcParser(projectName, new FileInputStream(f), TargetLanguage.LANG_NOT_SET, false);
-		SmcFSM fsMachine = p.parse();
-
-		// Get the list of the states
-		ArrayList<SmcMap> stateMaps = (ArrayList<SmcMap>) fsMachine.getMaps();
-
-		// Create the new automaton
-		HashSet<String> msgList = new HashSet<>();
-		ArrayList<FSMState> fsm = new ArrayList<>();
-		String startState, inMessage, endState, outMessage, condition;
-		char code = 64;
-
-		logger.debug("----------------------------------");
-		logger.debug("CREATING THE FINITE STATE MACHINE\n");
-		logger.debug("----------------------------------");
-
-		for (SmcMap s : stateMaps) {
-			for (SmcState st : s.getStates()) {
-				for (SmcTransition t : st.getTransitions()) {
-					startState = t.getState().getName().toString().split("[.]")[0];
-					condition = "";
-					for (SmcGuard g : t.getGuards()) {
-						inMessage = g.getName();
-						endState = g.getEndState().split("[.]")[0];
-						outMessage = g.getActions().get(0).getName();
-						condition = g.getCondition();
-
-						// Evaluate the condition if a specific product is given
-						if (product != null) {
-							Map<String, String> assignments = product.entrySet().stream().collect(
-									Collectors.toMap(Entry<String, String>::getKey, Entry<String, String>::getValue));
-							Map<String, Boolean> assignmentsBoolean = new HashMap<>();
-							assignments.entrySet().stream().forEach(entry -> {
-								assignmentsBoolean.put(entry.getKey(), Boolean.valueOf(entry.getValue()));
-							});
-							
-							if (MVEL.evalToBoolean(condition, assignmentsBoolean)) {
-								// Save the messages and the FSM
-								msgList.add(inMessage);
-								if (!outMessage.equals("no_response"))
-									msgList.add(outMessage);
-								fsm.add(new FSMState(startState, endState, inMessage, outMessage, condition));
-								logger.debug("Adding new state: " + startState + "(" + inMessage + ") -> " + endState + "("
-										+ outMessage + ")\n");
-							}
-						} else {
-							// Save the messages and the FSM without checking any condition
-							msgList.add(inMessage);
-							if (!outMessage.equals("no_response"))
-								msgList.add(outMessage);
-							fsm.add(new FSMState(startState, endState, inMessage, outMessage, condition));
-							logger.debug("Adding new state: " + startState + "(" + inMessage + ") -> " + endState + "("
-									+ outMessage + ")\n");
-						}
-					}
-				}
-			}
+		// Evaluate the conditions if a specific product is given
+		if (product != null) {
+			GuardTable guards = getGuardTable(fsm);
+			enabled = guards.enabledTransitions(guards.toProduct(product));
 		}
 
-		// Write the messages file and build the mapping between extended messages and
-		// single char
-		for (String s : msgList) {
-			while (code == ')' || code == '(' || code == '*' || code == '?' || code == '&' || code == '|' || code == '+'
-					|| code == '@' || code == '}' || code == '{' || code == '~' || code == '^' || code == '['
-					|| code == ']' || code == '-' || code == '.' || code == '#' || code == '\\' || code == '_'
-					|| code == '<' || code == '>')
-				code++;
-			msgsMapping.put(s.toUpperCase(), code);
-			code++;
+		// Build the mapping between extended messages and single char
+		fsm.mapEvents(msgsMapping, enabled);
+
+		// Return the built automaton
+		return fsm.toAutomaton(msgsMapping, enabled);
+	}
+
+	/**
+	 * Function that builds the automata of many products at once: the guards are
+	 * evaluated on all the products in a single pass, then the automata are built
+	 * in parallel, once for every distinct set of enabled transitions. Products
+	 * with the same behaviour share the same automaton and mapping.
+	 *
+	 * @param msgsMappings the list to be filled with the msgs mapping of every
+	 *                     product
+	 * @param products     the products
+	 * @param fsmFile      the fsm file path
+	 * @param projectName  the project name
+	 * @return the automata of the products, in the same order
+	 */
+	public static ArrayList<Automaton> buildFSMAutomataFromSMC(List<BiMap<String, Character>> msgsMappings,
+			List<Test> products, String fsmFile, String projectName)
+			throws IOException, IllegalAccessException, InvocationTargetException {
+		ProductClasses classes = classifyProducts(products, fsmFile, projectName);
+		List<BiMap<String, Character>> classMappings = new ArrayList<>();
+		ArrayList<Automaton> classAutomata = buildFSMAutomataFromSMC(classMappings, classes, fsmFile, projectName);
+
+		ArrayList<Automaton> result = new ArrayList<>(products.size());
+		for (int p = 0; p < products.size(); p++) {
+			msgsMappings.add(classMappings.get(classes.classOf(p)));
+			result.add(classAutomata.get(classes.classOf(p)));
 		}
+		return result;
+	}
 
-		logger.debug("END: CREATING THE FINAL STATE MACHINE\n");
+	/**
+	 * Function that partitions the products by their enabled transitions,
+	 * evaluating the guards on all the products in a single pass.
+	 *
+	 * @param products    the products
+	 * @param fsmFile     the fsm file path
+	 * @param projectName the project name
+	 * @return the classes of products with the same automaton
+	 */
+	public static ProductClasses classifyProducts(List<Test> products, String fsmFile, String projectName)
+			throws IOException, IllegalAccessException, InvocationTargetException {
+		GuardTable guards = getGuardTable(ModelCache.get(fsmFile, projectName));
+		return new ProductClasses(
+				guards.enabledTransitions(products.stream().map(guards::toProduct).collect(Collectors.toList())));
+	}
 
-		// Return the built automaton
-		return createAutomatonFromFSM(fsm, msgsMapping);
+	/**
+	 * Function that builds, in parallel, the automaton of every class of
+	 * products. The messages get the same chars in all the classes, so that the
+	 * sequences of a product can be replayed on another one.
+	 *
+	 * @param msgsMappings the list to be filled with the msgs mapping of every
+	 *                     class
+	 * @param classes      the classes of products
+	 * @param fsmFile      the fsm file path
+	 * @param projectName  the project name
+	 * @return the automata of the classes, in the same order
+	 */
+	public static ArrayList<Automaton> buildFSMAutomataFromSMC(List<BiMap<String, Character>> msgsMappings,
+			ProductClasses classes, String fsmFile, String projectName)
+			throws IOException, IllegalAccessException, InvocationTargetException {
+		CompiledFSM fsm = ModelCache.get(fsmFile, projectName);
+		BiMap<String, Character> allMessages = HashBiMap.create();
+		fsm.mapEvents(allMessages);
+		List<BiMap<String, Character>> mappings = new ArrayList<>();
+		for (int c = 0; c < classes.size(); c++)
+			mappings.add(fsm.restrictMapping(allMessages, classes.getEnabledTransitions(c)));
+		Automaton[] automata = new Automaton[classes.size()];
+		IntStream.range(0, classes.size()).parallel()
+				.forEach(c -> automata[c] = fsm.toAutomaton(mappings.get(c), classes.getEnabledTransitions(c)));
+
+		msgsMappings.addAll(mappings);
+		ArrayList<Automaton> result = new ArrayList<>(automata.length);
+		Collections.addAll(result, automata);
+		return result;
+	}
+
+	/**
+	 * Function that builds the automaton of the whole family: the transitions are
+	 * labelled with the products in which their guard holds.
+	 *
+	 * @param msgsMapping the mapping to be filled with all the messages of the FSM
+	 * @param products    the products
+	 * @param fsmFile     the fsm file path
+	 * @param projectName the project name
+	 * @return the automaton of the family
+	 */
+	public static FeaturedAutomaton buildFeaturedAutomatonFromSMC(BiMap<String, Character> msgsMapping,
+			List<Test> products, String fsmFile, String projectName)
+			throws IOException, IllegalAccessException, InvocationTargetException {
+		CompiledFSM fsm = ModelCache.get(fsmFile, projectName);
+		GuardTable guards = getGuardTable(fsm);
+		fsm.mapEvents(msgsMapping);
+		return new FeaturedAutomaton(guards,
+				products.stream().map(guards::toProduct).collect(Collectors.toList()), msgsMapping);
 	}
 
 }
@@ -0,0 +1,52 @@
+package util;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.mvel2.MVEL;
+
+/**
+ * Guard whose condition is not supported by {@link FeatureGuard}, compiled once
+ * with MVEL and evaluated product by product.
+ */
+public class MVELGuard extends FeatureGuard {
+
+	private final Serializable expression;
+	private final Map<String, Integer> features;
+
+	/**
+	 * Compiles the condition.
+	 *
+	 * @param condition the condition
+	 * @param features  the index of the features
+	 */
+	public MVELGuard(String condition, Map<String, Integer> features) {
+		this.expression = MVEL.compileExpression(condition);
+		this.features = features;
+	}
+
+	@Override
+	public boolean evaluate(BitSet product) {
+		Map<String, Boolean> assignmentsBoolean = new HashMap<>();
+		for (Entry<String, Integer> entry : features.entrySet())
+			assignmentsBoolean.put(entry.getKey(), product.get(entry.getValue()));
+		return Boolean.TRUE.equals(MVEL.executeExpression(expression, assignmentsBoolean));
+	}
+
+	@Override
+	public BitSet evaluate(BitSet[] columns, int nProducts) {
+		BitSet result = new BitSet(nProducts);
+		for (int p = 0; p < nProducts; p++) {
+			BitSet product = new BitSet(columns.length);
+			for (int f = 0; f < columns.length; f++)
+				if (columns[f] != null && columns[f].get(p))
+					product.set(f);
+			if (evaluate(product))
+				result.set(p);
+		}
+		return result;
+	}
+}